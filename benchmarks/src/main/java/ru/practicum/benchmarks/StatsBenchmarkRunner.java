@@ -0,0 +1,28 @@
+package ru.practicum.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// mvn -P benchmarks install -DskipTests
+// mvn -P benchmarks -pl benchmarks exec:exec [-Djmh.result=...] [-Djmh.include=StatsQuery]
+// Результаты пишутся в JSON (по умолчанию benchmarks/target/jmh-result.json) для сравнения прогонов.
+public class StatsBenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String result = args.length > 0 ? args[0] : "jmh-result.json";
+        String include = args.length > 1 ? args[1] : ".*";
+
+        Options options = new OptionsBuilder()
+                .include(StatsBenchmarkRunner.class.getPackageName() + "." + include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practicum.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.practicum.exception.HitQueueOverflowException;
+import ru.practicum.hit.NewHitRequest;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// пропускная способность приема: очередь + фоновые пачки в БД; отказы по переполнению считаются отдельно
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+public class StatsIngestBenchmark {
+
+    @State(Scope.Thread)
+    public static class Requests {
+        private static final int SIZE = 4_096;
+
+        private final NewHitRequest[] requests = new NewHitRequest[SIZE];
+        private int next;
+
+        @Setup
+        public void prepare() {
+            Random random = new Random(Thread.currentThread().threadId());
+            LocalDateTime now = LocalDateTime.now();
+            for (int i = 0; i < SIZE; i++) {
+                requests[i] = NewHitRequest.builder()
+                        .app(StatsServerEnvironment.APP)
+                        .uri(StatsServerEnvironment.uri(random.nextInt(StatsServerEnvironment.URIS)))
+                        .ip(StatsServerEnvironment.ip(random.nextInt(StatsServerEnvironment.IPS)))
+                        .timestamp(now)
+                        .build();
+            }
+        }
+
+        private NewHitRequest next() {
+            next = (next + 1) % SIZE;
+            return requests[next];
+        }
+    }
+
+    @Benchmark
+    public void addHit(StatsServerEnvironment environment, Requests requests, Blackhole blackhole) {
+        try {
+            environment.getStatsService().addHit(requests.next());
+        } catch (HitQueueOverflowException e) {
+            blackhole.consume(e);
+        }
+    }
+}
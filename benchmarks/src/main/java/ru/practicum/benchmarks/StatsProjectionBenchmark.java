@@ -0,0 +1,97 @@
+package ru.practicum.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.jpa.HibernateHints;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.hit.HitRepository;
+import ru.practicum.hit.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Точный запрос уникальных целиком через Hibernate на засеянной базе: HitStatsRepositoryImpl
+// (конструкторная проекция в ViewStatsDto) против прежнего JPQL с Object[] и ручным маппингом.
+// С -prof gc смотреть gc.alloc.rate.norm - байты на запрос вместе с разбором строк драйвером.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatsProjectionBenchmark {
+    // копия удаленного HitRepository.findUniqueStatsWithoutUris, оставлена как точка отсчета
+    private static final String OBJECT_ARRAY_QUERY = "SELECT h.app, h.uri, COUNT(DISTINCT h.ip) " +
+            "FROM Hit h " +
+            "WHERE h.timestamp BETWEEN :start AND :end " +
+            "GROUP BY h.app, h.uri " +
+            "ORDER BY COUNT(DISTINCT h.ip) DESC";
+
+    @Param({"DAY", "MONTH"})
+    private String range;
+
+    private LocalDateTime start;
+    private LocalDateTime end;
+
+    private HitRepository hitRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup
+    public void prepare(StatsServerEnvironment environment) {
+        end = LocalDateTime.now();
+        start = "DAY".equals(range) ? end.minusDays(1) : end.minusDays(StatsServerEnvironment.DAYS);
+
+        hitRepository = environment.getBean(HitRepository.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(
+                environment.getBean(EntityManagerFactory.class));
+        transactionTemplate = new TransactionTemplate(environment.getBean(PlatformTransactionManager.class));
+        transactionTemplate.setReadOnly(true);
+    }
+
+    @Benchmark
+    public List<ViewStatsDto> constructorProjection() {
+        return transactionTemplate.execute(status -> {
+            try (Stream<ViewStatsDto> rows = hitRepository.streamUniqueStats(start, end, null, null)) {
+                return rows.toList();
+            }
+        });
+    }
+
+    @Benchmark
+    public List<ViewStatsDto> objectArrayMapping() {
+        return transactionTemplate.execute(status -> {
+            try (Stream<Object[]> rows = entityManager.createQuery(OBJECT_ARRAY_QUERY, Object[].class)
+                    .setParameter("start", start)
+                    .setParameter("end", end)
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, 1_000)
+                    .getResultStream()) {
+                return rows.map(StatsProjectionBenchmark::objToViewStats).toList();
+            }
+        });
+    }
+
+    // копия удаленного StatsMapper.objToViewStats
+    private static ViewStatsDto objToViewStats(Object[] obj) {
+        String app = obj[0].toString();
+        String uri = obj[1].toString();
+        Long hits = ((Number) obj[2]).longValue();
+
+        return new ViewStatsDto(app, uri, hits);
+    }
+}
@@ -0,0 +1,60 @@
+package ru.practicum.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.hit.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// HOUR попадает в окно в памяти, MONTH идет в роллапы / точный запрос по hits
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatsQueryBenchmark {
+
+    @Param({"false", "true"})
+    private boolean unique;
+
+    @Param({"false", "true"})
+    private boolean withUris;
+
+    @Param({"HOUR", "MONTH"})
+    private String range;
+
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private List<String> uris;
+
+    @Setup
+    public void prepare() {
+        end = LocalDateTime.now();
+        start = "HOUR".equals(range) ? end.minusHours(1) : end.minusDays(StatsServerEnvironment.DAYS);
+
+        if (withUris) {
+            uris = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                uris.add(StatsServerEnvironment.uri(i * 97));
+            }
+        }
+    }
+
+    @Benchmark
+    public List<ViewStatsDto> getStats(StatsServerEnvironment environment) {
+        return environment.getStatsService().getStats(start, end, uris, unique, false, null);
+    }
+}
@@ -0,0 +1,124 @@
+package ru.practicum.benchmarks;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.StatsServer;
+import ru.practicum.hit.Hit;
+import ru.practicum.hit.HitBatchWriter;
+import ru.practicum.hit.StatsService;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// stats-server целиком (без веба) поверх Postgres с засеянными хитами.
+// По умолчанию поднимается embedded Postgres без контейнера, внешнюю базу можно задать через
+// переменные окружения BENCHMARK_JDBC_URL / BENCHMARK_JDBC_USER / BENCHMARK_JDBC_PASSWORD
+// (окружение, в отличие от -D, доходит до форков JMH при запуске через exec:exec)
+@State(Scope.Benchmark)
+public class StatsServerEnvironment {
+    public static final String APP = "ewm-main-service";
+    public static final int URIS = 1_000;
+    public static final int IPS = 5_000;
+    public static final int DAYS = 30;
+
+    private static final int SEED_BATCH = 1_000;
+
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private StatsService statsService;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        String url = System.getenv("BENCHMARK_JDBC_URL");
+        String user = environment("BENCHMARK_JDBC_USER", "postgres");
+        String password = environment("BENCHMARK_JDBC_PASSWORD", "postgres");
+        if (url == null) {
+            postgres = EmbeddedPostgres.builder().start();
+            url = "jdbc:postgresql://localhost:" + postgres.getPort() + "/postgres";
+        }
+
+        // аргументами, а не properties(): значения по умолчанию перекрываются application.yaml stats-server
+        context = new SpringApplicationBuilder(StatsServer.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + url + "?reWriteBatchedInserts=true",
+                        "--spring.datasource.username=" + user,
+                        "--spring.datasource.password=" + password,
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN");
+        statsService = context.getBean(StatsService.class);
+
+        seed(Integer.parseInt(environment("BENCHMARK_HITS", "200000")));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        if (context != null) {
+            context.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    public StatsService getStatsService() {
+        return statsService;
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public static String uri(int index) {
+        return "/events/" + index;
+    }
+
+    public static String ip(int index) {
+        return "10.0." + (index / 256) + "." + (index % 256);
+    }
+
+    private static String environment(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+
+    // хиты пишутся через HitBatchWriter, чтобы роллапы, скетчи и окно в памяти были заполнены
+    private void seed(int hits) {
+        Long existing = context.getBean(JdbcTemplate.class).queryForObject("SELECT COUNT(*) FROM hits", Long.class);
+        if (existing != null && existing >= hits) {
+            return;
+        }
+
+        HitBatchWriter writer = context.getBean(HitBatchWriter.class);
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        long window = DAYS * 24L * 60 * 60;
+
+        List<Hit> batch = new ArrayList<>(SEED_BATCH);
+        for (long i = existing == null ? 0 : existing; i < hits; i++) {
+            // степенное распределение: немного популярных событий и длинный хвост
+            int uri = (int) (URIS * Math.pow(random.nextDouble(), 3));
+            batch.add(Hit.builder()
+                    .app(APP)
+                    .uri(uri(uri))
+                    .ip(ip(random.nextInt(IPS)))
+                    .timestamp(now.minusSeconds((long) (random.nextDouble() * window)))
+                    .build());
+            if (batch.size() == SEED_BATCH) {
+                writer.write(batch);
+                batch = new ArrayList<>(SEED_BATCH);
+            }
+        }
+        writer.write(batch);
+    }
+}
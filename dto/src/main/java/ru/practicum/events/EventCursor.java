@@ -0,0 +1,81 @@
+package ru.practicum.events;
+
+import jakarta.validation.ValidationException;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Непрозрачный курсор keyset-пагинации: ключ сортировки последнего события страницы и его id.
+// Следующая страница начинается строго после этой пары, без OFFSET.
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class EventCursor {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final String BY_DATE = "d";
+    private static final String BY_VIEWS = "v";
+    private static final String BY_ID = "i";
+
+    String kind;
+    LocalDateTime eventDate;
+    Long views;
+    Long id;
+
+    public static EventCursor afterDate(LocalDateTime eventDate, Long id) {
+        return new EventCursor(BY_DATE, eventDate, null, id);
+    }
+
+    public static EventCursor afterViews(Long views, Long id) {
+        return new EventCursor(BY_VIEWS, null, views, id);
+    }
+
+    public static EventCursor afterId(Long id) {
+        return new EventCursor(BY_ID, null, null, id);
+    }
+
+    public boolean isByDate() {
+        return BY_DATE.equals(kind);
+    }
+
+    public boolean isByViews() {
+        return BY_VIEWS.equals(kind);
+    }
+
+    public boolean isById() {
+        return BY_ID.equals(kind);
+    }
+
+    public String encode() {
+        String key = switch (kind) {
+            case BY_DATE -> eventDate.toString();
+            case BY_VIEWS -> views.toString();
+            default -> "";
+        };
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((kind + "|" + key + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static EventCursor decode(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split("\\|", -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Unexpected cursor format");
+            }
+
+            Long id = Long.valueOf(parts[2]);
+            return switch (parts[0]) {
+                case BY_DATE -> afterDate(LocalDateTime.parse(parts[1]), id);
+                case BY_VIEWS -> afterViews(Long.valueOf(parts[1]), id);
+                case BY_ID -> afterId(id);
+                default -> throw new IllegalArgumentException("Unknown cursor kind " + parts[0]);
+            };
+        } catch (RuntimeException e) {
+            throw new ValidationException("Invalid cursor: " + cursor);
+        }
+    }
+}
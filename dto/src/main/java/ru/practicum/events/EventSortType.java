@@ -2,5 +2,7 @@ package ru.practicum.events;
 
 public enum EventSortType {
     EVENT_DATE,
-    VIEWS
+    VIEWS,
+    // по релевантности полнотекстового поиска, имеет смысл только вместе с text
+    RELEVANCE
 }
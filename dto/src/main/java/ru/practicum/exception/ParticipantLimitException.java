@@ -0,0 +1,8 @@
+package ru.practicum.exception;
+
+// мест на событии не осталось: один тип для подачи заявки и для подтверждения заявок инициатором
+public class ParticipantLimitException extends ConflictException {
+    public ParticipantLimitException(String message) {
+        super(message);
+    }
+}
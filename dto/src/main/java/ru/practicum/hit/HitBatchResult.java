@@ -0,0 +1,14 @@
+package ru.practicum.hit;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+@Value
+@Builder
+@Jacksonized
+public class HitBatchResult {
+    Integer batch;
+    Integer accepted;
+    Integer rejected;
+}
@@ -0,0 +1,16 @@
+package ru.practicum.hit;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.List;
+
+@Value
+@Builder
+@Jacksonized
+public class HitsBulkResult {
+    Long accepted;
+    Long rejected;
+    List<HitBatchResult> batches;
+}
@@ -0,0 +1,34 @@
+package ru.practicum.hit;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotNull;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// тело POST /stats: список uri может не поместиться в строку запроса GET
+@Value
+@Builder
+@Jacksonized
+public class StatsRequest {
+    @NotNull
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    LocalDateTime start;
+
+    @NotNull
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    LocalDateTime end;
+
+    List<String> uris;
+
+    @Builder.Default
+    boolean unique = false;
+
+    @Builder.Default
+    boolean approximate = false;
+
+    Integer limit;
+}
@@ -1,5 +1,6 @@
 package ru.practicum.hit;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,4 +14,12 @@ public class ViewStatsDto {
     private String app;
     private String uri;
     private Long hits;
+
+    // относительная стандартная ошибка, заполняется только для приближенного подсчета уникальных
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double errorBound;
+
+    public ViewStatsDto(String app, String uri, Long hits) {
+        this(app, uri, hits, null);
+    }
 }
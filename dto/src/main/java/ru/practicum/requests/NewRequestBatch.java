@@ -0,0 +1,21 @@
+package ru.practicum.requests;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.List;
+
+@Value
+@Builder
+@Jacksonized
+public class NewRequestBatch {
+
+    @NotEmpty
+    @Size(max = 100, message = "No more than 100 events per batch")
+    List<@NotNull @Positive Long> eventIds;
+}
@@ -4,6 +4,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
@@ -26,12 +27,13 @@ public class AdminWebEventClient extends BaseWebClient {
         super(baseUrl, API_PREFIX_EVENT);
     }
 
-    public Mono<List<EventDto>> getEvents(
+    public Mono<ResponseEntity<List<EventDto>>> getEvents(
             List<Long> users,
             List<String> states,
             List<Long> categories,
             LocalDateTime rangeStart,
             LocalDateTime rangeEnd,
+            String cursor,
             Integer from,
             Integer size
     ) {
@@ -42,13 +44,15 @@ public class AdminWebEventClient extends BaseWebClient {
                         .queryParamIfPresent("categories", Optional.ofNullable(categories))
                         .queryParamIfPresent("rangeStart", Optional.ofNullable(rangeStart))
                         .queryParamIfPresent("rangeEnd", Optional.ofNullable(rangeEnd))
+                        .queryParamIfPresent("cursor", Optional.ofNullable(cursor))
                         .queryParam("from", from)
                         .queryParam("size", size)
                         .build())
                 .accept(MediaType.APPLICATION_JSON)
                 .retrieve()
-                .bodyToFlux(EventDto.class)
-                .collectList();
+                .onStatus(status -> status == HttpStatus.BAD_REQUEST, BaseWebClient::toValidationException)
+                .toEntityList(EventDto.class)
+                .map(BaseWebClient::withNextCursor);
     }
 
     public EventDto updateEvent(Long eventId, UpdateEventRequest request) {
@@ -1,6 +1,13 @@
 package ru.practicum.base;
 
+import jakarta.validation.ValidationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import ru.practicum.events.EventCursor;
+
+import java.util.List;
 
 public class BaseWebClient {
     protected final WebClient webClient;
@@ -11,4 +18,19 @@ public class BaseWebClient {
                 .baseUrl(baseUrl + apiPrefix)
                 .build();
     }
+
+    // из ответа сервиса наружу отдаем только тело и курсор следующей страницы
+    protected static <T> ResponseEntity<List<T>> withNextCursor(ResponseEntity<List<T>> response) {
+        ResponseEntity.BodyBuilder result = ResponseEntity.ok();
+        String nextCursor = response.getHeaders().getFirst(EventCursor.NEXT_CURSOR_HEADER);
+        if (nextCursor != null) {
+            result.header(EventCursor.NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return result.body(response.getBody());
+    }
+
+    // битый курсор или курсор от другой сортировки сервис отклоняет с 400
+    protected static Mono<ValidationException> toValidationException(ClientResponse response) {
+        return response.bodyToMono(String.class).map(ValidationException::new);
+    }
 }
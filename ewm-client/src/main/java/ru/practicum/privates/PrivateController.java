@@ -6,6 +6,8 @@ import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import org.apache.coyote.BadRequestException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
@@ -14,6 +16,7 @@ import ru.practicum.comments.*;
 import ru.practicum.events.*;
 import ru.practicum.requests.EventRequestStatusUpdateRequest;
 import ru.practicum.requests.EventRequestStatusUpdateResult;
+import ru.practicum.requests.NewRequestBatch;
 import ru.practicum.requests.RequestDto;
 import ru.practicum.util.RequestsValidator;
 
@@ -53,12 +56,13 @@ public class PrivateController {
 
     //получение событий добавленых пользователем
     @GetMapping("/events")
-    public Mono<List<EventDto>> getEvents(
+    public Mono<ResponseEntity<List<EventDto>>> getEvents(
             @PathVariable @Min(1) Long userId,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "0") @Min(0) Integer from,
             @RequestParam(defaultValue = "10") @Min(1) Integer size
     ) {
-        return privateWebEventsClient.getUserEvents(userId, from, size);
+        return privateWebEventsClient.getUserEvents(userId, cursor, from, size);
     }
 
     //Изменение события
@@ -93,6 +97,16 @@ public class PrivateController {
         return privateWebRequestsClient.updateEventRequestsStatus(userId, eventId, request);
     }
 
+    //Подтверждение первых confirm ожидающих заявок в пределах лимита, остальные заявки отклоняются
+    @PatchMapping("events/{eventId}/requests/pending")
+    public EventRequestStatusUpdateResult confirmPendingRequests(
+            @PathVariable @Min(1) Long userId,
+            @PathVariable @Min(1) Long eventId,
+            @RequestParam(required = false) @Min(0) Integer confirm
+    ) {
+        return privateWebRequestsClient.confirmPendingRequests(userId, eventId, confirm);
+    }
+
 
     //Private: Запросы на участие
     //Закрытый API для работы с запросами текущего пользователя на участие в событиях
@@ -105,6 +119,16 @@ public class PrivateController {
         return privateWebRequestsClient.addRequest(userId, eventId);
     }
 
+    //Групповая регистрация пользователя сразу на несколько событий
+    @PostMapping("/requests/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public List<RequestDto> addRequests(
+            @PathVariable @Min(1) Long userId,
+            @RequestBody @Valid NewRequestBatch batch
+    ) {
+        return privateWebRequestsClient.addRequests(userId, batch);
+    }
+
     @GetMapping("/requests")
     public Mono<List<RequestDto>> getUserRequests(
             @PathVariable @Min(1) Long userId
@@ -132,7 +156,9 @@ public class PrivateController {
         return privateWebCommentsClient.addComment(userId, eventId, request);
     }
 
-    @GetMapping("events/{eventId}/comments")
+    // application/json - массив целиком, application/x-ndjson и text/event-stream - поток по мере чтения
+    @GetMapping(value = "events/{eventId}/comments", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
     public Flux<CommentDto> getComments(
             @PathVariable @Min(1) Long userId,
             @PathVariable @Min(1) Long eventId,
@@ -142,6 +168,16 @@ public class PrivateController {
         return privateWebCommentsClient.getComments(userId, eventId, from, size);
     }
 
+    //Комментарий со всеми ответами на него в порядке обхода ветки
+    @GetMapping("events/{eventId}/comments/{commentId}/thread")
+    public Flux<CommentDto> getCommentThread(
+            @PathVariable @Min(1) Long userId,
+            @PathVariable @Min(1) Long eventId,
+            @PathVariable @Min(1) Long commentId
+    ) {
+        return privateWebCommentsClient.getCommentThread(userId, eventId, commentId);
+    }
+
     @PatchMapping("events/{eventId}/comments/{commentId}")
     public CommentDto updateComment(
             @PathVariable @Min(1) Long userId,
@@ -173,7 +209,8 @@ public class PrivateController {
         return privateWebCommentsClient.replyToComment(userId, eventId, commentId, request);
     }
 
-    @GetMapping("/comments")
+    @GetMapping(value = "/comments", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
     public Flux<CommentDto> getUserComments(
             @PathVariable @Min(1) Long userId,
             @RequestParam(defaultValue = "SHOW_ACTIVE") CommentsShowingParam param,
@@ -48,6 +48,20 @@ public class PrivateWebCommentsClient extends BaseWebClient {
                         .queryParam("from", from)
                         .queryParam("size", size)
                         .build())
+                // ewm-service отдает ленту потоком, комментарии пробрасываются клиенту по мере получения
+                .accept(MediaType.APPLICATION_NDJSON)
+                .retrieve()
+                .onStatus(status -> status == HttpStatus.NOT_FOUND, response ->
+                        response.bodyToMono(String.class)
+                                .handle((errorBody, sink) -> {
+                                    sink.error(new NotFoundException(errorBody));
+                                }))
+                .bodyToFlux(CommentDto.class);
+    }
+
+    public Flux<CommentDto> getCommentThread(Long userId, Long eventId, Long commentId) {
+        return webClient.get()
+                .uri("/" + userId + "/events/" + eventId + "/comments/" + commentId + "/thread")
                 .accept(MediaType.APPLICATION_JSON)
                 .retrieve()
                 .onStatus(status -> status == HttpStatus.NOT_FOUND, response ->
@@ -142,7 +156,7 @@ public class PrivateWebCommentsClient extends BaseWebClient {
                         .queryParam("from", from)
                         .queryParam("size", size)
                         .build())
-                .accept(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_NDJSON)
                 .retrieve()
                 .onStatus(status -> status == HttpStatus.NOT_FOUND, response ->
                         response.bodyToMono(String.class)
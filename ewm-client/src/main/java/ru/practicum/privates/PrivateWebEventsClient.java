@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
@@ -16,6 +17,7 @@ import ru.practicum.exception.ForbiddenException;
 import ru.practicum.exception.NotFoundException;
 
 import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @Service
@@ -63,10 +65,11 @@ public class PrivateWebEventsClient extends BaseWebClient {
 
     }
 
-    public Mono<List<EventDto>> getUserEvents(Long userId, Integer from, Integer size) {
+    public Mono<ResponseEntity<List<EventDto>>> getUserEvents(Long userId, String cursor, Integer from, Integer size) {
         return webClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/" + userId + "/events")
+                        .queryParamIfPresent("cursor", Optional.ofNullable(cursor))
                         .queryParam("from", from)
                         .queryParam("size", size)
                         .build())
@@ -75,8 +78,9 @@ public class PrivateWebEventsClient extends BaseWebClient {
                 .onStatus(status -> status == HttpStatus.NOT_FOUND, response -> {
                     throw new NotFoundException("User with id=" + userId + " was not found");
                 })
-                .bodyToFlux(EventDto.class)
-                .collectList();
+                .onStatus(status -> status == HttpStatus.BAD_REQUEST, BaseWebClient::toValidationException)
+                .toEntityList(EventDto.class)
+                .map(BaseWebClient::withNextCursor);
     }
 
     public EventDto updateEvent(Long userId, Long eventId, UpdateEventRequest request) {
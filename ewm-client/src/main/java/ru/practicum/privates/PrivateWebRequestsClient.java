@@ -15,9 +15,11 @@ import ru.practicum.exception.ForbiddenException;
 import ru.practicum.exception.NotFoundException;
 import ru.practicum.requests.EventRequestStatusUpdateRequest;
 import ru.practicum.requests.EventRequestStatusUpdateResult;
+import ru.practicum.requests.NewRequestBatch;
 import ru.practicum.requests.RequestDto;
 
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @Slf4j
@@ -53,6 +55,26 @@ public class PrivateWebRequestsClient extends BaseWebClient {
         }
     }
 
+    public List<RequestDto> addRequests(Long userId, NewRequestBatch batch) {
+        try {
+            return webClient.post()
+                    .uri("/" + userId + "/requests/batch")
+                    .accept(MediaType.APPLICATION_JSON)
+                    .bodyValue(batch)
+                    .retrieve()
+                    .bodyToFlux(RequestDto.class)
+                    .collectList()
+                    .block();
+        } catch (WebClientResponseException ex) {
+            if (ex.getStatusCode() == HttpStatus.NOT_FOUND) {
+                throw new NotFoundException(ex.getResponseBodyAsString());
+            } else if (ex.getStatusCode() == HttpStatus.CONFLICT) {
+                throw new DataConflictException(ex.getResponseBodyAsString());
+            }
+            throw ex;
+        }
+    }
+
     public Mono<List<RequestDto>> getUserRequests(Long userId) {
         return webClient.get()
                 .uri("/" + userId + "/requests")
@@ -127,4 +149,31 @@ public class PrivateWebRequestsClient extends BaseWebClient {
         }
     }
 
+    public EventRequestStatusUpdateResult confirmPendingRequests(Long userId, Long eventId, Integer confirm) {
+        log.info("Confirm first {} pending requests for event {}", confirm, eventId);
+
+        try {
+            return webClient.patch()
+                    .uri(uriBuilder -> uriBuilder
+                            .path("/" + userId + "/events/" + eventId + "/requests/pending")
+                            .queryParamIfPresent("confirm", Optional.ofNullable(confirm))
+                            .build())
+                    .accept(MediaType.APPLICATION_JSON)
+                    .retrieve()
+                    .bodyToMono(EventRequestStatusUpdateResult.class)
+                    .block();
+        } catch (WebClientResponseException ex) {
+            if (ex.getStatusCode() == HttpStatus.NOT_FOUND) {
+                throw new NotFoundException(ex.getResponseBodyAsString());
+            }
+            if (ex.getStatusCode() == HttpStatus.FORBIDDEN) {
+                throw new ForbiddenException(ex.getResponseBodyAsString());
+            }
+            if (ex.getStatusCode() == HttpStatus.CONFLICT) {
+                throw new ConflictException(ex.getResponseBodyAsString());
+            }
+            throw ex;
+        }
+    }
+
 }
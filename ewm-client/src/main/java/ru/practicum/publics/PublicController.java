@@ -6,6 +6,7 @@ import jakarta.validation.constraints.Min;
 import lombok.AllArgsConstructor;
 import org.apache.coyote.BadRequestException;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -51,10 +52,11 @@ public class PublicController {
     //Публичный API для работы с подборками событий
     @GetMapping("/compilations")
     public Mono<List<CompilationDto>> getCompilations(
+            @RequestParam(required = false) Boolean pinned,
             @RequestParam(defaultValue = "0") @Min(0) Integer from,
             @RequestParam(defaultValue = "10") @Min(1) Integer size
     ) {
-        return publicWebClientCompilations.getCompilations(from, size);
+        return publicWebClientCompilations.getCompilations(pinned, from, size);
     }
 
     @GetMapping("/compilations/{compId}")
@@ -68,7 +70,7 @@ public class PublicController {
     //Публичный API для работы с событиями
 
     @GetMapping("/events")
-    public Mono<List<EventShortDto>> getEvents(
+    public Mono<ResponseEntity<List<EventShortDto>>> getEvents(
             @RequestParam(required = false) String text,
             @RequestParam(required = false) List<Long> categories,
             @RequestParam(required = false) Boolean paid,
@@ -78,6 +80,7 @@ public class PublicController {
             @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeEnd,
             @RequestParam(defaultValue = "false") Boolean onlyAvailable,
             @RequestParam(required = false) EventSortType sort,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "0") Integer from,
             @RequestParam(defaultValue = "10") Integer size,
             HttpServletRequest request
@@ -104,6 +107,7 @@ public class PublicController {
                 rangeEnd,
                 onlyAvailable,
                 sort,
+                cursor,
                 from,
                 size,
                 clientIp);
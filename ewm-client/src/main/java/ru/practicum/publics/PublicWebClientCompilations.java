@@ -10,6 +10,7 @@ import ru.practicum.compilations.CompilationDto;
 import ru.practicum.exception.NotFoundException;
 
 import java.util.List;
+import java.util.Optional;
 
 @Service
 public class PublicWebClientCompilations extends BaseWebClient {
@@ -19,9 +20,10 @@ public class PublicWebClientCompilations extends BaseWebClient {
         super(baseUrl, COMP_API);
     }
 
-    public Mono<List<CompilationDto>> getCompilations(Integer from, Integer size) {
+    public Mono<List<CompilationDto>> getCompilations(Boolean pinned, Integer from, Integer size) {
         return webClient.get()
                 .uri(uriBuilder -> uriBuilder
+                        .queryParamIfPresent("pinned", Optional.ofNullable(pinned))
                         .queryParam("from", from)
                         .queryParam("size", size)
                         .build())
@@ -3,6 +3,7 @@ package ru.practicum.publics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 import ru.practicum.base.BaseWebClient;
@@ -24,7 +25,7 @@ public class PublicWebClientEvents extends BaseWebClient {
         super(baseUrl, EVENT_API);
     }
 
-    public Mono<List<EventShortDto>> getEvents(
+    public Mono<ResponseEntity<List<EventShortDto>>> getEvents(
             String text,
             List<Long> categories,
             Boolean paid,
@@ -32,6 +33,7 @@ public class PublicWebClientEvents extends BaseWebClient {
             LocalDateTime rangeEnd,
             Boolean onlyAvailable,
             EventSortType sort,
+            String cursor,
             Integer from,
             Integer size,
             String clientIp
@@ -45,14 +47,16 @@ public class PublicWebClientEvents extends BaseWebClient {
                         .queryParamIfPresent("rangeEnd", Optional.ofNullable(rangeEnd))
                         .queryParamIfPresent("onlyAvailable", Optional.ofNullable(onlyAvailable))
                         .queryParamIfPresent("sort", Optional.ofNullable(sort))
+                        .queryParamIfPresent("cursor", Optional.ofNullable(cursor))
                         .queryParam("from", from)
                         .queryParam("size", size)
                         .build())
                 .header("X-Client-IP", clientIp)
                 .accept(MediaType.APPLICATION_JSON)
                 .retrieve()
-                .bodyToFlux(EventShortDto.class)
-                .collectList();
+                .onStatus(status -> status == HttpStatus.BAD_REQUEST, BaseWebClient::toValidationException)
+                .toEntityList(EventShortDto.class)
+                .map(BaseWebClient::withNextCursor);
     }
 
 
@@ -3,7 +3,6 @@ package ru.practicum.stats;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.coyote.BadRequestException;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -12,9 +11,11 @@ import org.springframework.web.util.UriBuilder;
 import ru.practicum.base.BaseWebClient;
 import ru.practicum.hit.NewHitRequest;
 import ru.practicum.hit.ViewStatsDto;
+import reactor.core.publisher.Flux;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @Service
@@ -44,14 +45,41 @@ public class StatsWebClient extends BaseWebClient {
     public List<ViewStatsDto> getStats(LocalDateTime start,
                                        LocalDateTime end,
                                        List<String> uris,
-                                       boolean unique) {
+                                       boolean unique,
+                                       boolean approximate,
+                                       Integer limit) {
+        return requestStats("/stats", start, end, uris, unique, approximate, limit, MediaType.APPLICATION_JSON)
+                .collectList()
+                .block();
+    }
+
+    // NDJSON от stats-server проксируется построчно, без сборки всего ответа
+    public Flux<ViewStatsDto> streamStats(LocalDateTime start,
+                                          LocalDateTime end,
+                                          List<String> uris,
+                                          boolean unique,
+                                          boolean approximate,
+                                          Integer limit) {
+        return requestStats("/stats/stream", start, end, uris, unique, approximate, limit, MediaType.APPLICATION_NDJSON);
+    }
+
+    private Flux<ViewStatsDto> requestStats(String path,
+                                            LocalDateTime start,
+                                            LocalDateTime end,
+                                            List<String> uris,
+                                            boolean unique,
+                                            boolean approximate,
+                                            Integer limit,
+                                            MediaType accept) {
         return webClient.get()
                 .uri(uriBuilder -> {
                     UriBuilder builder = uriBuilder
-                            .path("/stats")
+                            .path(path)
                             .queryParam("start", start)
                             .queryParam("end", end)
-                            .queryParam("unique", unique);
+                            .queryParam("unique", unique)
+                            .queryParam("approximate", approximate)
+                            .queryParamIfPresent("limit", Optional.ofNullable(limit));
 
                     // Передаем каждый URI как отдельный параметр
                     if (uris != null && !uris.isEmpty()) {
@@ -59,7 +87,7 @@ public class StatsWebClient extends BaseWebClient {
                     }
                     return builder.build();
                 })
-                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .accept(accept)
                 .retrieve()
                 .onStatus(status -> status == HttpStatus.BAD_REQUEST, response -> {
                     try {
@@ -68,8 +96,6 @@ public class StatsWebClient extends BaseWebClient {
                         throw new RuntimeException(e);
                     }
                 })
-                .bodyToFlux(ViewStatsDto.class)
-                .collectList()
-                .block();
+                .bodyToFlux(ViewStatsDto.class);
     }
 }
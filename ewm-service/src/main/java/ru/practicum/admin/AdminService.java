@@ -5,8 +5,11 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.categories.*;
 import ru.practicum.compilations.*;
 import ru.practicum.events.*;
@@ -29,6 +32,7 @@ import java.util.stream.Collectors;
 public class AdminService {
     private final UserRepository userRepository;
     private final CategoryRepository categoryRepository;
+    private final CategoryCatalog categoryCatalog;
     private final EventRepository eventRepository;
     private final CompilationsRepository compilationsRepository;
 
@@ -36,6 +40,9 @@ public class AdminService {
     private final CategoryMapper categoryMapper;
     private final EventMapper eventMapper;
     private final CompilationsMapper compilationsMapper;
+    private final EventSearchCache eventSearchCache;
+    private final CompilationReadModel compilationReadModel;
+    private final TransactionTemplate readOnlyTransactionTemplate;
 
     //Users
     public UserDto addUser(UserRequest request) {
@@ -85,14 +92,17 @@ public class AdminService {
             throw new NotFoundException("User with id=" + id + " was not found");
         }
 
+        // события пользователя удаляются каскадом, после коммита их подборки уже не найти
+        List<Long> compilationIds = compilationsRepository.findIdsByInitiatorId(id);
         userRepository.deleteById(id);
+        compilationReadModel.compilationsChanged(compilationIds);
     }
 
     //Categories
     public CategoryDto saveCategory(NewCategoryRequest request) {
         log.info("Saving category {}", request);
 
-        if (categoryRepository.existsByName((request.getName()))) {
+        if (categoryCatalog.existsByName(request.getName())) {
             throw new DataConflictException("could not execute statement; SQL [n/a];" +
                     " constraint " + request.getName() + "; " +
                     "nested exception is org.hibernate.exception" +
@@ -103,6 +113,7 @@ public class AdminService {
                 .name(request.getName())
                 .build()
         );
+        categoryCatalog.saved(category);
 
         return categoryMapper.categoryToCategoryDto(category);
     }
@@ -110,7 +121,7 @@ public class AdminService {
     public void deleteCategory(Long id) {
         log.info("Deleting category {}", id);
 
-        if (!categoryRepository.existsById(id)) {
+        if (!categoryCatalog.exists(id)) {
             throw new NotFoundException("Category with id=" + id + " was not found");
         }
         if (eventRepository.existsByCategory_Id(id)) {
@@ -118,16 +129,17 @@ public class AdminService {
         }
 
         categoryRepository.deleteById(id);
+        categoryCatalog.deleted(id);
     }
 
     public CategoryDto updateCategory(Long id, UpdateCategoryRequest request) {
         log.info("Updating category {}", id);
 
-        Category category = categoryRepository.findById(id).orElseThrow(
+        Category category = categoryCatalog.findCategory(id).orElseThrow(
                 () -> new NotFoundException("Category with id=" + id + " was not found")
         );
 
-        if (!request.getName().equals(category.getName()) && categoryRepository.existsByName(request.getName())) {
+        if (!request.getName().equals(category.getName()) && categoryCatalog.existsByName(request.getName())) {
             throw new DataConflictException("could not execute statement; SQL [n/a];" +
                     " constraint " + request.getName() + "; " +
                     "nested exception is org.hibernate.exception" +
@@ -135,38 +147,52 @@ public class AdminService {
         }
 
         category.setName(request.getName());
-        return categoryMapper.categoryToCategoryDto(categoryRepository.save(category));
+        category = categoryRepository.save(category);
+        categoryCatalog.saved(category);
+        // название категории показывается в выдаче поиска и в событиях подборок
+        eventSearchCache.invalidate();
+        compilationReadModel.categoryChanged(id);
+        return categoryMapper.categoryToCategoryDto(category);
     }
 
     //события
-    @Transactional(readOnly = true)
-    public List<EventDto> getEvents(
+    // просмотры из stats-server дозапрашиваются после транзакции чтения
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public EventPage<EventDto> getEvents(
             List<Long> users,
             List<String> states,
             List<Long> categories,
             LocalDateTime rangeStart,
             LocalDateTime rangeEnd,
+            String cursor,
             Integer from,
             Integer size
     ) {
         log.info("--------------------------------------------------------------------");
         log.info("Get by filters users: {}, states: {}, categorise: {}," +
-                " rangeStart: {}, rangeEnd: {}, from: {}, size: {}", users, states, categories, rangeStart, rangeEnd, from, size);
+                " rangeStart: {}, rangeEnd: {}, cursor: {}, from: {}, size: {}",
+                users, states, categories, rangeStart, rangeEnd, cursor, from, size);
 
         List<EventState> eventStates = parseStates(states);
 
-        Pageable pageable = PageRequest.of(from / size, size);
-
-        List<Event> eventList = eventRepository.findByAdminFilters(users,
-                eventStates,
-                categories,
-                rangeStart,
-                rangeEnd,
-                pageable);
-
-        return eventList.stream()
-                .map(eventMapper::toDto)
-                .collect(Collectors.toList());
+        EventPage<EventDto> page = readOnlyTransactionTemplate.execute(status -> {
+            Slice<Event> slice = eventRepository.findByAdminFilters(users,
+                    eventStates,
+                    categories,
+                    rangeStart,
+                    rangeEnd,
+                    EventFetchPlan.WITH_CATEGORY_AND_INITIATOR,
+                    cursor != null ? EventCursor.decode(cursor) : null,
+                    from,
+                    size);
+            List<Event> eventList = slice.getContent();
+
+            String nextCursor = slice.hasNext() ? EventCursor.afterId(eventList.getLast().getId()).encode() : null;
+            return new EventPage<>(eventList.stream()
+                    .map(eventMapper::toStoredDto)
+                    .collect(Collectors.toList()), nextCursor);
+        });
+        return new EventPage<>(eventMapper.withCurrentViews(page.getEvents()), page.getNextCursor());
 
     }
 
@@ -198,7 +224,7 @@ public class AdminService {
         }
         if (request.hasCategory()) {
             log.info("set category {}", request.getCategory());
-            event.setCategory(categoryRepository.findById(request.getCategory()).orElseThrow(
+            event.setCategory(categoryCatalog.findCategory(request.getCategory()).orElseThrow(
                     () -> new NotFoundException("Category with id=" + request.getCategory() + " was not found")
             ));
         }
@@ -261,6 +287,8 @@ public class AdminService {
         }
 
         event = eventRepository.save(event);
+        eventSearchCache.invalidate();
+        compilationReadModel.eventsChanged(List.of(event.getId()));
         return eventMapper.toDto(event);
     }
 
@@ -279,7 +307,7 @@ public class AdminService {
         List<Event> events;
 
         if (request.getEvents() != null) {
-            events = eventRepository.findByIdIn(request.getEvents());
+            events = eventRepository.findWithCategoryAndInitiatorByIdIn(request.getEvents());
             log.info("Found {} events", events.size());
 
             logMissedIds(events, request);
@@ -296,6 +324,7 @@ public class AdminService {
                 .build());
 
         log.info("Compilation created with id: {}", compilation.getId());
+        compilationReadModel.compilationChanged(compilation.getId());
 
         return compilationsMapper.toDto(compilation);
     }
@@ -345,7 +374,7 @@ public class AdminService {
         );
 
         if (request.hasEvents()) {
-            List<Event> events = eventRepository.findByIdIn(request.getEvents());
+            List<Event> events = eventRepository.findWithCategoryAndInitiatorByIdIn(request.getEvents());
             logMissedIds(events, request);
             events = sortEventsByRequestOrder(events, request.getEvents());
             compilation.setEvents(events);
@@ -362,6 +391,7 @@ public class AdminService {
         }
 
         compilation = compilationsRepository.save(compilation);
+        compilationReadModel.compilationChanged(compilation.getId());
         return compilationsMapper.toDto(compilation);
     }
 
@@ -0,0 +1,152 @@
+package ru.practicum.categories;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+// Категорий мало и меняются они редко: все читается из неизменяемого снимка в памяти.
+// Изменения AdminService применяются к копии снимка и подменяют его после коммита;
+// периодическая перезагрузка подтягивает изменения, сделанные другими экземплярами сервиса.
+// Промах по id перепроверяется в базе: категория могла появиться в другом экземпляре после перезагрузки.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CategoryCatalog {
+    private final CategoryRepository categoryRepository;
+    private final CategoryMapper categoryMapper;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    // список, прочитанный до локального изменения, снимок уже не подменяет
+    private final AtomicLong generation = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${category-catalog.refresh-ms:60000}",
+            initialDelayString = "${category-catalog.refresh-ms:60000}")
+    public void reload() {
+        long loadedGeneration = generation.get();
+        List<CategoryDto> categories = categoryRepository.findAll().stream()
+                .map(categoryMapper::categoryToCategoryDto)
+                .toList();
+        synchronized (snapshot) {
+            if (generation.get() != loadedGeneration) {
+                log.debug("Category catalog changed during reload, keeping the current snapshot");
+                return;
+            }
+            snapshot.set(Snapshot.of(categories));
+        }
+        log.debug("Category catalog loaded: {} categories", categories.size());
+    }
+
+    public List<CategoryDto> getCategories(Integer from, Integer size) {
+        List<CategoryDto> categories = current().categories();
+        int start = Math.min((from / size) * size, categories.size());
+        return categories.subList(start, Math.min(start + size, categories.size()));
+    }
+
+    public Optional<CategoryDto> find(Long id) {
+        CategoryDto category = current().byId().get(id);
+        if (category != null) {
+            return Optional.of(category);
+        }
+        return categoryRepository.findById(id).map(categoryMapper::categoryToCategoryDto);
+    }
+
+    public boolean exists(Long id) {
+        return current().byId().containsKey(id) || categoryRepository.existsById(id);
+    }
+
+    public boolean existsByName(String name) {
+        return current().idsByName().containsKey(name);
+    }
+
+    // новый отсоединенный экземпляр на каждый вызов: для связи события с категорией Hibernate нужен только id
+    public Optional<Category> findCategory(Long id) {
+        return find(id).map(category -> Category.builder()
+                .id(category.getId())
+                .name(category.getName())
+                .build());
+    }
+
+    public void saved(Category category) {
+        CategoryDto dto = categoryMapper.categoryToCategoryDto(category);
+        afterCommit(categories -> {
+            List<CategoryDto> updated = new ArrayList<>(categories);
+            updated.removeIf(existing -> existing.getId().equals(dto.getId()));
+            updated.add(dto);
+            return updated;
+        });
+    }
+
+    public void deleted(Long id) {
+        afterCommit(categories -> categories.stream()
+                .filter(category -> !category.getId().equals(id))
+                .toList());
+    }
+
+    private void afterCommit(UnaryOperator<List<CategoryDto>> change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(change);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(change);
+            }
+        });
+    }
+
+    // без снимка применять не к чему: первая же загрузка прочитает изменение из базы
+    private void apply(UnaryOperator<List<CategoryDto>> change) {
+        synchronized (snapshot) {
+            generation.incrementAndGet();
+            Snapshot current = snapshot.get();
+            if (current != null) {
+                snapshot.set(Snapshot.of(change.apply(current.categories())));
+            }
+        }
+    }
+
+    // до ApplicationReadyEvent снимка еще нет; загрузку, отброшенную из-за изменения, повторяем
+    private Snapshot current() {
+        Snapshot current = snapshot.get();
+        while (current == null) {
+            reload();
+            current = snapshot.get();
+        }
+        return current;
+    }
+
+    private record Snapshot(List<CategoryDto> categories,
+                            Map<Long, CategoryDto> byId,
+                            Map<String, Long> idsByName) {
+
+        private static Snapshot of(List<CategoryDto> categories) {
+            List<CategoryDto> sorted = categories.stream()
+                    .sorted(Comparator.comparing(CategoryDto::getId))
+                    .toList();
+            Map<Long, CategoryDto> byId = new HashMap<>();
+            Map<String, Long> idsByName = new HashMap<>();
+            for (CategoryDto category : sorted) {
+                byId.put(category.getId(), category);
+                idsByName.put(category.getName(), category.getId());
+            }
+            return new Snapshot(sorted, Map.copyOf(byId), Map.copyOf(idsByName));
+        }
+    }
+}
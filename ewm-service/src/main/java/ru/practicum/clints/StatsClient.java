@@ -1,24 +1,214 @@
 package ru.practicum.clints;
 
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import ru.practicum.hit.HitsBulkResult;
 import ru.practicum.hit.NewHitRequest;
+import ru.practicum.hit.StatsRequest;
+import ru.practicum.hit.ViewStatsDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 
 @Slf4j
 @Component
 public class StatsClient {
+    private static final Duration SEND_TIMEOUT = Duration.ofSeconds(5);
+
     protected final WebClient webClient;
 
-    public StatsClient(@Value("${stats-server.url}") String statsUrl) {
+    private final boolean async;
+    private final BlockingQueue<NewHitRequest> buffer;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final ScheduledExecutorService scheduler;
+
+    private final Counter sentCounter;
+    private final Counter droppedCounter;
+    private final Counter rejectedCounter;
+    private final Counter discardedCounter;
+    private final Counter failedSendsCounter;
+
+    // трогаются только из потока scheduler
+    private final List<NewHitRequest> retryBatch = new ArrayList<>();
+    private long backoffMs;
+    private long nextAttemptAt;
+
+    public StatsClient(@Value("${stats-server.url}") String statsUrl,
+                       @Value("${stats-client.async:true}") boolean async,
+                       @Value("${stats-client.buffer-capacity:10000}") int bufferCapacity,
+                       @Value("${stats-client.batch-size:500}") int batchSize,
+                       @Value("${stats-client.flush-interval-ms:500}") long flushIntervalMs,
+                       @Value("${stats-client.initial-backoff-ms:1000}") long initialBackoffMs,
+                       @Value("${stats-client.max-backoff-ms:60000}") long maxBackoffMs,
+                       MeterRegistry meterRegistry) {
         this.webClient = WebClient.create(statsUrl);
+        this.async = async;
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-client-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("stats.client.buffer.size", buffer, BlockingQueue::size)
+                .description("Hits waiting to be shipped to stats-server")
+                .register(meterRegistry);
+        this.sentCounter = meterRegistry.counter("stats.client.hits", "result", "sent");
+        this.droppedCounter = meterRegistry.counter("stats.client.hits", "result", "dropped");
+        this.rejectedCounter = meterRegistry.counter("stats.client.hits", "result", "rejected");
+        this.discardedCounter = meterRegistry.counter("stats.client.hits", "result", "discarded");
+        this.failedSendsCounter = meterRegistry.counter("stats.client.send.failures");
+    }
+
+    @PostConstruct
+    public void start() {
+        if (async) {
+            scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!async) {
+            return;
+        }
+        scheduler.shutdown();
+        // retryBatch принадлежит потоку scheduler: пока он не завершился, трогать его нельзя
+        if (!scheduler.awaitTermination(SEND_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("Stats client sender did not stop in time, {} buffered hits are not sent", buffer.size());
+            return;
+        }
+        nextAttemptAt = 0;
+        flush();
+        if (!buffer.isEmpty() || !retryBatch.isEmpty()) {
+            log.warn("Stats client stopped with {} unsent hits", buffer.size() + retryBatch.size());
+        }
     }
 
+    // в async-режиме поток запроса только кладет хит в буфер; при переполнении вытесняется самый старый
     public void addHit(NewHitRequest request) {
+        if (!async) {
+            sendNow(request);
+            return;
+        }
+
+        while (!buffer.offer(request)) {
+            if (buffer.poll() != null) {
+                droppedCounter.increment();
+            }
+        }
+    }
+
+    // синхронный запрос статистики; ошибки пробрасываются, решение о фолбэке за вызывающим
+    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        StatsRequest request = StatsRequest.builder()
+                .start(start)
+                .end(end)
+                .uris(uris)
+                .unique(unique)
+                .build();
+
+        return webClient.post()
+                .uri("/stats")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .retrieve()
+                .bodyToFlux(ViewStatsDto.class)
+                .collectList()
+                .block(SEND_TIMEOUT);
+    }
+
+    private void flush() {
+        try {
+            while (System.currentTimeMillis() >= nextAttemptAt) {
+                if (retryBatch.isEmpty()) {
+                    buffer.drainTo(retryBatch, batchSize);
+                }
+                if (retryBatch.isEmpty()) {
+                    return;
+                }
+
+                if (sendBatch(retryBatch) == SendResult.FAILED) {
+                    backoffMs = backoffMs == 0 ? initialBackoffMs : Math.min(backoffMs * 2, maxBackoffMs);
+                    nextAttemptAt = System.currentTimeMillis() + backoffMs;
+                    log.warn("Stats server unavailable, retrying {} hits in {} ms", retryBatch.size(), backoffMs);
+                    return;
+                }
+
+                retryBatch.clear();
+                backoffMs = 0;
+                nextAttemptAt = 0;
+            }
+        } catch (Exception e) {
+            log.error("Unexpected error while shipping hits", e);
+        }
+    }
+
+    private SendResult sendBatch(List<NewHitRequest> batch) {
+        try {
+            HitsBulkResult result = webClient.post()
+                    .uri("/hits")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(batch)
+                    .retrieve()
+                    .bodyToMono(HitsBulkResult.class)
+                    .block(SEND_TIMEOUT);
+
+            if (result != null) {
+                sentCounter.increment(result.getAccepted());
+                if (result.getRejected() > 0) {
+                    rejectedCounter.increment(result.getRejected());
+                    log.warn("Stats server rejected {} of {} hits", result.getRejected(), batch.size());
+                }
+            }
+            log.debug("Shipped {} hits to stats server", batch.size());
+            return SendResult.SENT;
+        } catch (WebClientResponseException e) {
+            // повтор той же пачки даст тот же 4xx и заблокирует отправку всех следующих хитов
+            if (e.getStatusCode().is4xxClientError()
+                    && e.getStatusCode().value() != HttpStatus.REQUEST_TIMEOUT.value()
+                    && e.getStatusCode().value() != HttpStatus.TOO_MANY_REQUESTS.value()) {
+                discardedCounter.increment(batch.size());
+                log.warn("Stats server refused {} hits with {}, batch dropped", batch.size(), e.getStatusCode());
+                return SendResult.DISCARDED;
+            }
+            failedSendsCounter.increment();
+            log.debug("Hits batch send failed: {}", e.getMessage());
+            return SendResult.FAILED;
+        } catch (Exception e) {
+            failedSendsCounter.increment();
+            log.debug("Hits batch send failed: {}", e.getMessage());
+            return SendResult.FAILED;
+        }
+    }
+
+    private void sendNow(NewHitRequest request) {
         try {
             webClient.post()
                     .uri("/hit")
@@ -37,4 +227,10 @@ public class StatsClient {
             log.error("Failed to send hit to stats service", e);
         }
     }
+
+    private enum SendResult {
+        SENT,
+        DISCARDED,
+        FAILED
+    }
 }
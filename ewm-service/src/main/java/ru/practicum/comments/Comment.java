@@ -10,8 +10,6 @@ import ru.practicum.events.Event;
 import ru.practicum.user.User;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
 
 
 @Entity
@@ -44,8 +42,10 @@ public class Comment {
     @JoinColumn(name = "parent_comment_id")
     private Comment parentComment;
 
-    @OneToMany(mappedBy = "parentComment", cascade = CascadeType.ALL)
-    private List<Comment> replies = new ArrayList<>();
+    // материализованный путь: id предков и самого комментария фиксированной ширины через '/'.
+    // поддерево - пути в [path, subtreeEnd()); сортировка по пути дает обход ветки в глубину
+    @Column(name = "path")
+    private String path;
 
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     @CreationTimestamp
@@ -62,4 +62,15 @@ public class Comment {
 
     @Builder.Default
     private boolean deleted = false;
+
+    // id известен только после вставки (IDENTITY), путь дописывается следующим UPDATE той же транзакции
+    public void assignPath() {
+        String segment = String.format("%019d/", id);
+        path = parentComment == null ? segment : parentComment.getPath() + segment;
+    }
+
+    // первая строка после всех путей с префиксом path: завершающий '/' заменяется следующим символом '0'
+    public String subtreeEnd() {
+        return path.substring(0, path.length() - 1) + '0';
+    }
 }
@@ -0,0 +1,95 @@
+package ru.practicum.comments;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+// Ленты комментариев для потоковой отдачи, от новых к старым.
+// Строки читаются keyset-порциями по (created_at, id): следующая порция запрашивается,
+// только когда подписчик готов принять еще элементы, соединение занято лишь на время чтения порции.
+// from пропускается OFFSET'ом первой порции, дальше лента идет по ключу последней строки.
+@Component
+public class CommentFeed {
+    private static final String SELECT_COMMENTS = "SELECT c.id, c.text, c.parent_comment_id, " +
+            "u.name AS author, c.created_at " +
+            "FROM comments c JOIN users u ON u.id = c.user_id " +
+            "WHERE %s%s " +
+            "ORDER BY c.created_at DESC, c.id DESC " +
+            "LIMIT ? OFFSET ?";
+    private static final String AFTER_KEY = " AND (c.created_at, c.id) < (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int chunkSize;
+
+    public CommentFeed(JdbcTemplate jdbcTemplate,
+                       @Value("${comment-feed.chunk-size:100}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    public Flux<CommentDto> eventComments(Long eventId, int from, int size) {
+        return stream("c.event_id = ? AND c.deleted = false", List.of(eventId), from, size);
+    }
+
+    // deleted == null - все комментарии пользователя
+    public Flux<CommentDto> userComments(Long userId, Boolean deleted, int from, int size) {
+        return deleted == null
+                ? stream("c.user_id = ?", List.of(userId), from, size)
+                : stream("c.user_id = ? AND c.deleted = ?", List.of(userId, deleted), from, size);
+    }
+
+    private Flux<CommentDto> stream(String filter, List<Object> filterArgs, int from, int size) {
+        return Flux.<List<CommentDto>, Position>generate(
+                        () -> new Position(null, null, size),
+                        (position, sink) -> {
+                            int limit = Math.min(chunkSize, position.remaining());
+                            List<CommentDto> chunk = limit > 0 ? fetch(filter, filterArgs, position, from, limit) : List.of();
+                            if (chunk.isEmpty()) {
+                                sink.complete();
+                                return position;
+                            }
+
+                            sink.next(chunk);
+                            if (chunk.size() < limit) {
+                                sink.complete();
+                            }
+                            CommentDto last = chunk.get(chunk.size() - 1);
+                            return new Position(last.getCreationDate(), last.getId(), position.remaining() - chunk.size());
+                        })
+                .flatMapIterable(Function.identity())
+                // JDBC блокирует поток: порции читаются вне потоков, обслуживающих запросы
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private List<CommentDto> fetch(String filter, List<Object> filterArgs, Position position, int from, int limit) {
+        boolean first = position.id() == null;
+        List<Object> args = new ArrayList<>(filterArgs);
+        if (!first) {
+            args.add(Timestamp.valueOf(position.createdAt()));
+            args.add(position.id());
+        }
+        args.add(limit);
+        args.add(first ? from : 0);
+
+        String sql = String.format(SELECT_COMMENTS, filter, first ? "" : AFTER_KEY);
+        return jdbcTemplate.query(sql, (rs, rowNum) -> CommentDto.builder()
+                .id(rs.getLong("id"))
+                .text(rs.getString("text"))
+                .parentComment(rs.getObject("parent_comment_id", Long.class))
+                .author(rs.getString("author"))
+                .creationDate(rs.getTimestamp("created_at").toLocalDateTime())
+                .build(), args.toArray());
+    }
+
+    // ключ последней отданной строки; id == null - первая порция
+    private record Position(LocalDateTime createdAt, Long id, int remaining) {
+    }
+}
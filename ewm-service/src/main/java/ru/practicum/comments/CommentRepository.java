@@ -1,16 +1,22 @@
 package ru.practicum.comments;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface CommentRepository extends JpaRepository<Comment, Long> {
-
-    Page<Comment> findByEvent_IdAndDeleted(Long eventId, boolean deleted, Pageable pageable);
+import java.util.List;
 
-    Page<Comment> findByAuthor_Id(Long authorId, Pageable pageable);
-
-    Page<Comment> findByAuthor_IdAndDeleted(Long authorId, boolean deleted, Pageable pageable);
+public interface CommentRepository extends JpaRepository<Comment, Long> {
 
+    // ветка целиком одним запросом, уже в порядке обхода; границы - Comment.getPath() и Comment.subtreeEnd()
+    @EntityGraph(attributePaths = "author")
+    @Query("select c from Comment c where c.path >= :from and c.path < :to and c.deleted = false order by c.path")
+    List<Comment> findSubtree(@Param("from") String from, @Param("to") String to);
 
+    // комментарий и все ответы на него одним UPDATE по диапазону путей
+    @Modifying(flushAutomatically = true)
+    @Query("update Comment c set c.deleted = :deleted where c.path >= :from and c.path < :to")
+    int markSubtreeDeleted(@Param("from") String from, @Param("to") String to, @Param("deleted") boolean deleted);
 }
@@ -0,0 +1,177 @@
+package ru.practicum.compilations;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.events.Event;
+import ru.practicum.events.EventDto;
+import ru.practicum.events.EventMapper;
+import ru.practicum.events.EventRepository;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// Пересобирает compilation_views: подборка вместе со всеми событиями, их категориями и инициаторами
+// лежит одной строкой, публичное чтение подборок - один запрос без догрузки событий.
+// Пересборка идет после коммита изменения в отдельной транзакции. Подборки, которые не удалось
+// пересобрать, и подборки без строки повторяет периодическая сверка; пока строки нет,
+// подборка собирается из основных таблиц на чтении.
+@Component
+@Slf4j
+public class CompilationReadModel {
+    private final CompilationsRepository compilationsRepository;
+    private final CompilationViewRepository compilationViewRepository;
+    private final EventRepository eventRepository;
+    private final EventMapper eventMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    // ждут следующей сверки; если не удалось даже найти затронутые подборки - пересобираются все
+    private final Set<Long> failed = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuildAllPending = new AtomicBoolean();
+
+    public CompilationReadModel(CompilationsRepository compilationsRepository,
+                                CompilationViewRepository compilationViewRepository,
+                                EventRepository eventRepository,
+                                EventMapper eventMapper,
+                                PlatformTransactionManager transactionManager) {
+        this.compilationsRepository = compilationsRepository;
+        this.compilationViewRepository = compilationViewRepository;
+        this.eventRepository = eventRepository;
+        this.eventMapper = eventMapper;
+        // в afterCommit транзакция изменения еще привязана к потоку, поэтому нужна новая
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildAll() {
+        List<Long> ids = transactionTemplate.execute(status -> compilationsRepository.findAllIds());
+        if (ids != null) {
+            ids.forEach(this::rebuild);
+            log.info("Compilation read model rebuilt: {} compilations", ids.size());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${compilation-read-model.reconcile-ms:60000}",
+            initialDelayString = "${compilation-read-model.reconcile-ms:60000}")
+    public void reconcile() {
+        Set<Long> ids = new TreeSet<>();
+        try {
+            List<Long> missing = transactionTemplate.execute(status -> rebuildAllPending.getAndSet(false)
+                    ? compilationsRepository.findAllIds()
+                    : compilationsRepository.findIdsWithoutView());
+            if (missing != null) {
+                ids.addAll(missing);
+            }
+        } catch (RuntimeException e) {
+            rebuildAllPending.set(true);
+            log.warn("Failed to find compilations to reconcile: {}", e.getMessage());
+        }
+        ids.addAll(failed);
+        ids.forEach(id -> {
+            failed.remove(id);
+            rebuildOrRemember(id);
+        });
+        if (!ids.isEmpty()) {
+            log.info("Compilation read model reconciled: {} compilations", ids.size());
+        }
+    }
+
+    // строки еще нет (сверка не дошла): собираем ту же строку из основных таблиц, не сохраняя
+    public Optional<CompilationView> build(Long compilationId) {
+        return compilationsRepository.findById(compilationId).map(this::assemble);
+    }
+
+    // удаление подборки отдельно не обрабатывается: строка удаляется каскадом по внешнему ключу
+    public void compilationChanged(Long compilationId) {
+        afterCommit(() -> List.of(compilationId));
+    }
+
+    public void eventsChanged(Collection<Long> eventIds) {
+        List<Long> ids = List.copyOf(eventIds);
+        afterCommit(() -> compilationsRepository.findIdsByEventIds(ids));
+    }
+
+    public void categoryChanged(Long categoryId) {
+        afterCommit(() -> compilationsRepository.findIdsByCategoryId(categoryId));
+    }
+
+    // после коммита удаления связи уже нет: затронутые подборки находит вызывающий код до удаления
+    public void compilationsChanged(Collection<Long> compilationIds) {
+        List<Long> ids = List.copyOf(compilationIds);
+        afterCommit(() -> ids);
+    }
+
+    private void afterCommit(Supplier<List<Long>> affected) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rebuildAffected(affected);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                rebuildAffected(affected);
+            }
+        });
+    }
+
+    // изменение уже закоммичено: ошибка пересборки не должна превращать ответ в 500
+    private void rebuildAffected(Supplier<List<Long>> affected) {
+        List<Long> ids;
+        try {
+            ids = transactionTemplate.execute(status -> affected.get());
+        } catch (RuntimeException e) {
+            rebuildAllPending.set(true);
+            log.warn("Failed to find compilations to rebuild: {}", e.getMessage());
+            return;
+        }
+        if (ids != null) {
+            ids.forEach(this::rebuildOrRemember);
+        }
+    }
+
+    private void rebuildOrRemember(Long compilationId) {
+        try {
+            rebuild(compilationId);
+        } catch (RuntimeException e) {
+            failed.add(compilationId);
+            log.warn("Failed to rebuild compilation {} read model: {}", compilationId, e.getMessage());
+        }
+    }
+
+    private void rebuild(Long compilationId) {
+        transactionTemplate.executeWithoutResult(status ->
+                compilationsRepository.findLockedById(compilationId)
+                        .ifPresent(compilation -> compilationViewRepository.save(assemble(compilation))));
+    }
+
+    private CompilationView assemble(Compilation compilation) {
+        List<EventDto> events = eventRepository
+                .findWithCategoryAndInitiatorByIdIn(compilationsRepository.findEventIds(compilation.getId()))
+                .stream()
+                .sorted(Comparator.comparing(Event::getId))
+                .map(eventMapper::toStoredDto)
+                .toList();
+
+        return CompilationView.builder()
+                .compilationId(compilation.getId())
+                .pinned(compilation.getPinned())
+                .title(compilation.getTitle())
+                .events(events)
+                .build();
+    }
+}
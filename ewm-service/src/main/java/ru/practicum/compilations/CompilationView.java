@@ -0,0 +1,37 @@
+package ru.practicum.compilations;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import ru.practicum.events.EventDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// строка read model подборки: события хранятся готовыми EventDto, просмотры в них - сохраненное значение
+@Entity
+@Table(name = "compilation_views")
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@Getter
+@Setter
+@Builder
+public class CompilationView {
+
+    @Id
+    @Column(name = "compilation_id")
+    private Long compilationId;
+
+    @Column(name = "pinned", nullable = false)
+    private Boolean pinned;
+
+    @Column(name = "title", nullable = false, length = 50)
+    private String title;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "events", nullable = false)
+    @Builder.Default
+    private List<EventDto> events = new ArrayList<>();
+}
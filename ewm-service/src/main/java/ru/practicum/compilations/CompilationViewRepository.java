@@ -0,0 +1,14 @@
+package ru.practicum.compilations;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface CompilationViewRepository extends JpaRepository<CompilationView, Long> {
+
+    // List вместо Page: без лишнего COUNT
+    List<CompilationView> findAllBy(Pageable pageable);
+
+    List<CompilationView> findByPinned(Boolean pinned, Pageable pageable);
+}
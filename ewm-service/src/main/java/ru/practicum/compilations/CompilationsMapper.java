@@ -2,12 +2,17 @@ package ru.practicum.compilations;
 
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import ru.practicum.events.EventMapper;
 
-@Mapper(componentModel = "spring")
+@Mapper(componentModel = "spring", uses = EventMapper.class)
 public interface CompilationsMapper {
 
     @Mapping(source = "id", target = "id")
     @Mapping(source = "pinned", target = "pinned")
     @Mapping(source = "title", target = "title")
     CompilationDto toDto(Compilation compilation);
+
+    @Mapping(source = "compilationId", target = "id")
+    @Mapping(source = "events", target = "events", qualifiedByName = "withCurrentViews")
+    CompilationDto toDto(CompilationView view);
 }
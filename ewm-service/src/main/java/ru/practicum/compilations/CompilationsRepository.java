@@ -1,8 +1,47 @@
 package ru.practicum.compilations;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface CompilationsRepository extends JpaRepository<Compilation, Long> {
     boolean existsByTitle(String title);
 
+    // сериализует параллельные пересборки read model одной подборки
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Compilation> findLockedById(Long id);
+
+    @Query(value = "SELECT id FROM compilations", nativeQuery = true)
+    List<Long> findAllIds();
+
+    @Query(value = "SELECT event_id FROM compilation_events WHERE compilation_id = :compilationId",
+            nativeQuery = true)
+    List<Long> findEventIds(@Param("compilationId") Long compilationId);
+
+    @Query(value = "SELECT DISTINCT compilation_id FROM compilation_events WHERE event_id IN (:eventIds)",
+            nativeQuery = true)
+    List<Long> findIdsByEventIds(@Param("eventIds") Collection<Long> eventIds);
+
+    @Query(value = "SELECT DISTINCT ce.compilation_id FROM compilation_events ce " +
+            "JOIN events e ON e.id = ce.event_id " +
+            "WHERE e.category_id = :categoryId",
+            nativeQuery = true)
+    List<Long> findIdsByCategoryId(@Param("categoryId") Long categoryId);
+
+    @Query(value = "SELECT DISTINCT ce.compilation_id FROM compilation_events ce " +
+            "JOIN events e ON e.id = ce.event_id " +
+            "WHERE e.initiator_id = :userId",
+            nativeQuery = true)
+    List<Long> findIdsByInitiatorId(@Param("userId") Long userId);
+
+    @Query(value = "SELECT c.id FROM compilations c " +
+            "WHERE NOT EXISTS (SELECT 1 FROM compilation_views v WHERE v.compilation_id = c.id)",
+            nativeQuery = true)
+    List<Long> findIdsWithoutView();
 }
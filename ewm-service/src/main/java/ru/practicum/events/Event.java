@@ -12,6 +12,10 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@NamedEntityGraph(name = Event.GRAPH_CATEGORY_INITIATOR, attributeNodes = {
+        @NamedAttributeNode("category"),
+        @NamedAttributeNode("initiator")
+})
 @AllArgsConstructor
 @NoArgsConstructor
 @ToString
@@ -20,7 +24,8 @@ import java.util.Set;
 @Table(name = "events")
 @Builder
 @EqualsAndHashCode
-public class Event {
+public class Event implements Viewable {
+    public static final String GRAPH_CATEGORY_INITIATOR = "Event.categoryInitiator";
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -74,13 +79,20 @@ public class Event {
     @Builder.Default
     private EventState state = EventState.PENDING;
 
-    @Column(name = "confirmed_requests", nullable = false)
+    // меняется только через EventSeats: сохранение сущности не должно затирать параллельные подтверждения
+    @Column(name = "confirmed_requests", nullable = false, updatable = false)
     @Builder.Default
     private Integer confirmedRequests = 0;
 
+    // накапливается только пакетным UPDATE из EventViewCounter: сохранение сущности не должно затирать дельты
     @Builder.Default
+    @Column(updatable = false)
     private Long views = 0L;
 
+    // уникальные просмотры из stats-server, пишет только EventStatsViewsSync
+    @Column(name = "stats_views", insertable = false, updatable = false)
+    private Long statsViews;
+
     @ManyToMany(mappedBy = "events", fetch = FetchType.LAZY)
     @Builder.Default
     @ToString.Exclude
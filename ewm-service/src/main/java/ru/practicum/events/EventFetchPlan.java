@@ -0,0 +1,14 @@
+package ru.practicum.events;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+// какие связи события загружать тем же запросом; выбирает вызывающий код по тому, что он будет читать
+@Getter
+@RequiredArgsConstructor
+public enum EventFetchPlan {
+    // для маппинга в EventShortDto/EventDto: категория и инициатор приходят join'ом, без 2N догрузок
+    WITH_CATEGORY_AND_INITIATOR(Event.GRAPH_CATEGORY_INITIATOR);
+
+    private final String graphName;
+}
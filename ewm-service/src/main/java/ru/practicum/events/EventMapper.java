@@ -1,12 +1,45 @@
 package ru.practicum.events;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.Named;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
 
 @Mapper(componentModel = "spring")
-public interface EventMapper {
-    EventDto toDto(Event event);
+public abstract class EventMapper {
+    @Autowired
+    protected EventViewsService eventViewsService;
+
+    @Mapping(target = "views", expression = "java(eventViewsService.views(event))")
+    public abstract EventDto toDto(Event event);
+
+    @Mapping(target = "views", expression = "java(eventViewsService.views(event))")
+    public abstract EventShortDto toShortDto(Event event);
+
+    @Mapping(target = "category.id", source = "categoryId")
+    @Mapping(target = "category.name", source = "categoryName")
+    @Mapping(target = "initiator.id", source = "initiatorId")
+    @Mapping(target = "initiator.name", source = "initiatorName")
+    @Mapping(target = "views", expression = "java(eventViewsService.views(view))")
+    public abstract EventShortDto toShortDto(EventShortView view);
+
+    public abstract SimpleEventDto toSimpleDto(Event event);
+
+    // снимок без обращения к stats-server (для read model и для чтения в транзакции):
+    // последние известные stats_views, актуальные подставляет withCurrentViews
+    @Named("toStoredDto")
+    @Mapping(target = "views", source = "statsViews")
+    public abstract EventDto toStoredDto(Event event);
 
-    EventShortDto toShortDto(Event event);
+    @Named("withCurrentViews")
+    @Mapping(target = "views", expression = "java(eventViewsService.views(Viewable.of(event)))")
+    public abstract EventDto withCurrentViews(EventDto event);
 
-    SimpleEventDto toSimpleDto(Event event);
+    // страница снимков: просмотры дозапрашиваются одним запросом к stats-server
+    public List<EventDto> withCurrentViews(List<EventDto> events) {
+        eventViewsService.prefetch(events.stream().map(Viewable::of).toList());
+        return events.stream().map(this::withCurrentViews).toList();
+    }
 }
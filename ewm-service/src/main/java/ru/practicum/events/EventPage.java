@@ -0,0 +1,22 @@
+package ru.practicum.events;
+
+import lombok.Value;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+// страница событий и курсор следующей страницы (null, если дальше ничего нет)
+@Value
+public class EventPage<T> {
+    List<T> events;
+    String nextCursor;
+
+    // тело остается списком, как и раньше; курсор уходит в заголовок
+    public ResponseEntity<List<T>> toResponse() {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (nextCursor != null) {
+            response.header(EventCursor.NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return response.body(events);
+    }
+}
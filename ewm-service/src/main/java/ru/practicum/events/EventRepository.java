@@ -2,10 +2,11 @@ package ru.practicum.events;
 
 
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import jakarta.validation.ValidationException;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
 
@@ -13,18 +14,34 @@ import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 
-public interface EventRepository extends JpaRepository<Event, Long>, QuerydslPredicateExecutor<Event> {
-
-    List<Event> findByInitiatorId(Long userId, Pageable pageable);
+public interface EventRepository extends JpaRepository<Event, Long>,
+        QuerydslPredicateExecutor<Event>,
+        EventSliceRepository {
 
     boolean existsByCategory_Id(Long categoryId);
 
-    default List<Event> findByAdminFilters(List<Long> users,
-                                           List<EventState> states,
-                                           List<Long> categories,
-                                           LocalDateTime rangeStart,
-                                           LocalDateTime rangeEnd,
-                                           Pageable pageable) {
+    // без курсора - прежний offset (from / size), с курсором - страница строго после него
+    default Slice<Event> findByInitiatorId(Long userId,
+                                           EventFetchPlan fetchPlan,
+                                           EventCursor cursor,
+                                           Integer from,
+                                           Integer size) {
+        QEvent event = QEvent.event;
+        BooleanBuilder predicate = new BooleanBuilder(event.initiator.id.eq(userId));
+        predicate.and(afterId(cursor));
+
+        return findSlice(predicate, fetchPlan, offset(cursor, from, size), size, event.id.asc());
+    }
+
+    default Slice<Event> findByAdminFilters(List<Long> users,
+                                            List<EventState> states,
+                                            List<Long> categories,
+                                            LocalDateTime rangeStart,
+                                            LocalDateTime rangeEnd,
+                                            EventFetchPlan fetchPlan,
+                                            EventCursor cursor,
+                                            Integer from,
+                                            Integer size) {
 
         QEvent event = QEvent.event;
         BooleanBuilder predicate = new BooleanBuilder();
@@ -49,22 +66,89 @@ public interface EventRepository extends JpaRepository<Event, Long>, QuerydslPre
             predicate.and(event.eventDate.loe(rangeEnd));
         }
 
-        return findAll(predicate, pageable).getContent();
+        predicate.and(afterId(cursor));
+
+        return findSlice(predicate, fetchPlan, offset(cursor, from, size), size, event.id.asc());
     }
 
-    List<Event> findByIdIn(Collection<Long> ids);
+    @EntityGraph(Event.GRAPH_CATEGORY_INITIATOR)
+    List<Event> findWithCategoryAndInitiatorByIdIn(Collection<Long> ids);
+
+    // сортировка по дате события
+    default Slice<EventShortView> findByPublicFilters(String text,
+                                                      List<Long> categories,
+                                                      Boolean paid,
+                                                      LocalDateTime rangeStart,
+                                                      LocalDateTime rangeEnd,
+                                                      Boolean onlyAvailable,
+                                                      EventCursor cursor,
+                                                      Integer from,
+                                                      Integer size
+    ) {
+        QEvent event = QEvent.event;
+        BooleanBuilder predicate = new BooleanBuilder(
+                publicFilters(text, categories, paid, rangeStart, rangeEnd, onlyAvailable));
+
+        if (cursor != null) {
+            if (!cursor.isByDate()) {
+                throw new ValidationException("Cursor does not match sort " + EventSortType.EVENT_DATE);
+            }
+            predicate.and(event.eventDate.gt(cursor.getEventDate())
+                    .or(event.eventDate.eq(cursor.getEventDate()).and(event.id.gt(cursor.getId()))));
+        }
 
+        return findShortSlice(predicate, offset(cursor, from, size), size, event.eventDate.asc(), event.id.asc());
+    }
 
-    default List<Event> findByPublicFilters(String text,
-                                            List<Long> categories,
-                                            Boolean paid,
-                                            LocalDateTime rangeStart,
-                                            LocalDateTime rangeEnd,
-                                            Boolean onlyAvailable,
-                                            EventSortType sort,
-                                            Integer from,
-                                            Integer size
-    ) {
+    // сортировка по просмотрам из stats-server, перенесенным в stats_views: порядок и страница считаются в SQL,
+    // курсор - пара (stats_views, id) последнего события страницы
+    default Slice<EventShortView> findByPublicFiltersOrderByViews(String text,
+                                                                  List<Long> categories,
+                                                                  Boolean paid,
+                                                                  LocalDateTime rangeStart,
+                                                                  LocalDateTime rangeEnd,
+                                                                  Boolean onlyAvailable,
+                                                                  EventCursor cursor,
+                                                                  Integer from,
+                                                                  Integer size) {
+        QEvent event = QEvent.event;
+        BooleanBuilder predicate = new BooleanBuilder(
+                publicFilters(text, categories, paid, rangeStart, rangeEnd, onlyAvailable));
+
+        if (cursor != null) {
+            if (!cursor.isByViews()) {
+                throw new ValidationException("Cursor does not match sort " + EventSortType.VIEWS);
+            }
+            // направления сортировки разные, row comparison не подходит; отдельное stats_views <= v
+            // становится условием индекса, и скан начинается с курсора, а не с начала
+            predicate.and(event.statsViews.loe(cursor.getViews()));
+            predicate.and(event.statsViews.lt(cursor.getViews()).or(event.id.gt(cursor.getId())));
+        }
+
+        return findShortSlice(predicate, offset(cursor, from, size), size, event.statsViews.desc(), event.id.asc());
+    }
+
+    private static Predicate afterId(EventCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        if (!cursor.isById()) {
+            throw new ValidationException("Cursor does not match event listing");
+        }
+        return QEvent.event.id.gt(cursor.getId());
+    }
+
+    // from округляется вниз до границы страницы, как это делал PageRequest.of(from / size, size)
+    private static long offset(EventCursor cursor, Integer from, Integer size) {
+        return cursor != null ? 0 : (long) (from / size) * size;
+    }
+
+    default Predicate publicFilters(String text,
+                                    List<Long> categories,
+                                    Boolean paid,
+                                    LocalDateTime rangeStart,
+                                    LocalDateTime rangeEnd,
+                                    Boolean onlyAvailable) {
         QEvent event = QEvent.event;
         BooleanBuilder predicate = new BooleanBuilder();
 
@@ -106,18 +190,6 @@ public interface EventRepository extends JpaRepository<Event, Long>, QuerydslPre
             predicate.and(event.eventDate.goe(LocalDateTime.now()));
         }
 
-        if (sort == null) {
-            sort = EventSortType.EVENT_DATE;
-        }
-
-
-        Sort sortObj = switch (sort) {
-            case VIEWS -> sortObj = Sort.by(Sort.Direction.DESC, "views");
-            case EVENT_DATE -> sortObj = Sort.by(Sort.Direction.ASC, "eventDate");
-        };
-
-        Pageable pageable = PageRequest.of(from / size, size, sortObj);
-
-        return findAll(predicate, pageable).getContent();
+        return predicate;
     }
-}
+}
\ No newline at end of file
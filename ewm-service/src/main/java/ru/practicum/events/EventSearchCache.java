@@ -0,0 +1,155 @@
+package ru.practicum.events;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Страницы публичного поиска событий по нормализованному набору фильтров.
+// Живут короткий TTL, вытесняются по LRU; любое изменение, видимое в поиске, сбрасывает кеш целиком:
+// новое или измененное событие может попасть в выдачу по любому набору фильтров.
+// Просмотры в кеш не попадают, их каждый раз досчитывает EventViewsService.
+@Component
+public class EventSearchCache {
+    private final boolean enabled;
+    private final long ttlMs;
+    private final int maxEntries;
+
+    private final Map<Key, Entry> entries;
+    // страницу, прочитанную до сброса, в кеш уже не кладем
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter invalidationCounter;
+
+    public EventSearchCache(MeterRegistry meterRegistry,
+                            @Value("${event-search-cache.enabled:true}") boolean enabled,
+                            @Value("${event-search-cache.ttl-ms:5000}") long ttlMs,
+                            @Value("${event-search-cache.max-entries:1000}") int maxEntries) {
+        this.enabled = enabled;
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > EventSearchCache.this.maxEntries;
+            }
+        };
+
+        this.hitCounter = meterRegistry.counter("events.search-cache.requests", "result", "hit");
+        this.missCounter = meterRegistry.counter("events.search-cache.requests", "result", "miss");
+        this.invalidationCounter = meterRegistry.counter("events.search-cache.invalidations");
+        meterRegistry.gauge("events.search-cache.hit-ratio", this, EventSearchCache::hitRatio);
+        meterRegistry.gauge("events.search-cache.size", this, EventSearchCache::size);
+    }
+
+    public EventPage<EventShortView> get(Key key, Supplier<EventPage<EventShortView>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt() > now) {
+                hitCounter.increment();
+                return entry.page();
+            }
+        }
+        missCounter.increment();
+
+        long loadedGeneration = generation.get();
+        EventPage<EventShortView> page = loader.get();
+        synchronized (entries) {
+            if (generation.get() == loadedGeneration) {
+                entries.put(key, new Entry(page, System.currentTimeMillis() + ttlMs));
+            }
+        }
+        return page;
+    }
+
+    // вызывается из транзакции изменения: сбрасываем после коммита, иначе кеш успеет заполниться старыми данными
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow();
+                }
+            });
+        } else {
+            invalidateNow();
+        }
+    }
+
+    private void invalidateNow() {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            entries.clear();
+        }
+        invalidationCounter.increment();
+    }
+
+    // rangeStart "от текущего момента" у каждого запроса свой; в пределах TTL считаем его одним и тем же
+    public Key key(String text,
+                   List<Long> categories,
+                   Boolean paid,
+                   LocalDateTime rangeStart,
+                   LocalDateTime rangeEnd,
+                   Boolean onlyAvailable,
+                   EventSortType sort,
+                   String cursor,
+                   Integer from,
+                   Integer size) {
+        boolean fromNow = rangeStart == null
+                || Duration.between(rangeStart, LocalDateTime.now()).abs().toMillis() < ttlMs;
+        return new Key(text == null || text.isBlank() ? null : text.trim().toLowerCase(),
+                categories == null ? List.of() : categories.stream().distinct().sorted().toList(),
+                paid,
+                fromNow ? null : rangeStart,
+                rangeEnd,
+                Boolean.TRUE.equals(onlyAvailable),
+                sort == null ? EventSortType.EVENT_DATE : sort,
+                cursor,
+                cursor == null ? from / size : 0,
+                size);
+    }
+
+    private double hitRatio() {
+        double hits = hitCounter.count();
+        double total = hits + missCounter.count();
+        return total == 0 ? 0 : hits / total;
+    }
+
+    private int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public record Key(String text,
+                      List<Long> categories,
+                      Boolean paid,
+                      LocalDateTime rangeStart,
+                      LocalDateTime rangeEnd,
+                      boolean onlyAvailable,
+                      EventSortType sort,
+                      String cursor,
+                      int page,
+                      int size) {
+    }
+
+    private record Entry(EventPage<EventShortView> page, long expiresAt) {
+    }
+}
@@ -0,0 +1,47 @@
+package ru.practicum.events;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Места на событии занимаются и освобождаются только условными UPDATE по строке events:
+// проверка лимита и приращение confirmed_requests идут одной операцией в базе,
+// поэтому параллельные подтверждения не выходят за participant_limit.
+// Модерация заявок инициатором занимает места тем же условием в RequestBatchStore.updatePending.
+// Работает в транзакции вызывающего сервиса; строка события заблокирована до ее коммита.
+@Component
+@RequiredArgsConstructor
+public class EventSeats {
+    // participant_limit = 0 - без ограничения, иначе выдается не больше оставшихся мест.
+    // NO KEY UPDATE, а не UPDATE: вставка заявки держит на событии FOR KEY SHARE по внешнему ключу,
+    // и две такие транзакции, ждущие FOR UPDATE друг за другом, попадали бы во взаимную блокировку
+    private static final String RESERVE_SEATS = "WITH cur AS (" +
+            "SELECT id, confirmed_requests, participant_limit FROM events WHERE id = ? FOR NO KEY UPDATE) " +
+            "UPDATE events e SET confirmed_requests = cur.confirmed_requests + g.granted " +
+            "FROM cur, LATERAL (SELECT CASE WHEN cur.participant_limit = 0 THEN ? " +
+            "ELSE LEAST(?, GREATEST(cur.participant_limit - cur.confirmed_requests, 0)) END AS granted) g " +
+            "WHERE e.id = cur.id AND g.granted > 0 " +
+            "RETURNING g.granted";
+
+    private static final String RELEASE_SEATS = "UPDATE events SET confirmed_requests = confirmed_requests - ? " +
+            "WHERE id = ? AND confirmed_requests >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // возвращает, сколько мест из запрошенных удалось занять: от 0 до seats
+    public int reserve(Long eventId, int seats) {
+        if (seats <= 0) {
+            return 0;
+        }
+        List<Integer> granted = jdbcTemplate.queryForList(RESERVE_SEATS, Integer.class, eventId, seats, seats);
+        return granted.isEmpty() ? 0 : granted.get(0);
+    }
+
+    public void release(Long eventId, int seats) {
+        if (seats > 0) {
+            jdbcTemplate.update(RELEASE_SEATS, seats, eventId, seats);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ru.practicum.events;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+// строка публичного списка событий: только колонки EventShortDto, даты для подсчета просмотров
+// и stats_views для курсора сортировки VIEWS; собирается запросом с join'ами категории и инициатора,
+// в контекст персистентности не попадает
+@Value
+public class EventShortView implements Viewable {
+    Long id;
+    String annotation;
+    String title;
+    LocalDateTime eventDate;
+    Boolean paid;
+    Integer confirmedRequests;
+    Long views;
+    Long statsViews;
+    LocalDateTime publishedOn;
+    LocalDateTime createdOn;
+    Long categoryId;
+    String categoryName;
+    Long initiatorId;
+    String initiatorName;
+}
@@ -0,0 +1,28 @@
+package ru.practicum.events;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
+import org.springframework.data.domain.Slice;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EventSliceRepository {
+
+    Slice<Event> findSlice(Predicate predicate,
+                           EventFetchPlan fetchPlan,
+                           long offset,
+                           int size,
+                           OrderSpecifier<?>... order);
+
+    Slice<EventShortView> findShortSlice(Predicate predicate, long offset, int size, OrderSpecifier<?>... order);
+
+    List<EventShortView> findShortByRelevance(String text,
+                                              List<Long> categories,
+                                              Boolean paid,
+                                              LocalDateTime rangeStart,
+                                              LocalDateTime rangeEnd,
+                                              Boolean onlyAvailable,
+                                              long offset,
+                                              int size);
+}
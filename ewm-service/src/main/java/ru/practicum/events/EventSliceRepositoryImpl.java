@@ -0,0 +1,194 @@
+package ru.practicum.events;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQuery;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import org.hibernate.jpa.SpecHints;
+import org.hibernate.query.NativeQuery;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import ru.practicum.categories.QCategory;
+import ru.practicum.user.QUser;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class EventSliceRepositoryImpl implements EventSliceRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // страница без COUNT: запрашиваем на одну строку больше, по ней понятно, есть ли следующая
+    @Override
+    public Slice<Event> findSlice(Predicate predicate,
+                                  EventFetchPlan fetchPlan,
+                                  long offset,
+                                  int size,
+                                  OrderSpecifier<?>... order) {
+        List<Event> events = query(predicate, fetchPlan)
+                .orderBy(order)
+                .offset(offset)
+                .limit(size + 1L)
+                .fetch();
+
+        return toSlice(events, size);
+    }
+
+    @Override
+    public Slice<EventShortView> findShortSlice(Predicate predicate,
+                                                long offset,
+                                                int size,
+                                                OrderSpecifier<?>... order) {
+        List<EventShortView> events = shortViews(predicate)
+                .orderBy(order)
+                .offset(offset)
+                .limit(size + 1L)
+                .fetch();
+
+        return toSlice(events, size);
+    }
+
+    // ранг, публичные фильтры, порядок и страница - в одном запросе. Отбор по text тот же, что в publicFilters
+    // для остальных сортировок (подстрока по триграммным индексам), ts_rank только упорядочивает:
+    // совпадения целыми словами выше (title весит больше annotation, annotation - больше description),
+    // совпадения только по подстроке получают ранг 0 и идут после них по дате
+    @Override
+    public List<EventShortView> findShortByRelevance(String text,
+                                                     List<Long> categories,
+                                                     Boolean paid,
+                                                     LocalDateTime rangeStart,
+                                                     LocalDateTime rangeEnd,
+                                                     Boolean onlyAvailable,
+                                                     long offset,
+                                                     int size) {
+        StringBuilder sql = new StringBuilder("SELECT e.id, e.annotation, e.title, e.event_date, e.paid, " +
+                "e.confirmed_requests, e.views, e.stats_views, e.published_on, e.created_on, " +
+                "c.id AS category_id, c.name AS category_name, u.id AS initiator_id, u.name AS initiator_name " +
+                "FROM events e " +
+                "CROSS JOIN websearch_to_tsquery('simple', :text) q " +
+                "JOIN categories c ON c.id = e.category_id " +
+                "JOIN users u ON u.id = e.initiator_id " +
+                "WHERE e.state = 'PUBLISHED' " +
+                "AND (lower(e.annotation) LIKE :pattern ESCAPE '!' OR lower(e.title) LIKE :pattern ESCAPE '!' " +
+                "OR lower(e.description) LIKE :pattern ESCAPE '!')");
+        Map<String, Object> params = new HashMap<>();
+        params.put("text", text);
+        params.put("pattern", containsPattern(text));
+
+        if (categories != null && !categories.isEmpty()) {
+            sql.append(" AND e.category_id IN (:categories)");
+            params.put("categories", categories);
+        }
+        if (paid != null) {
+            sql.append(" AND e.paid = :paid");
+            params.put("paid", paid);
+        }
+        // без начала диапазона - только будущие события, как в publicFilters
+        sql.append(" AND e.event_date >= :rangeStart");
+        params.put("rangeStart", rangeStart != null ? rangeStart : LocalDateTime.now());
+        if (rangeEnd != null) {
+            sql.append(" AND e.event_date <= :rangeEnd");
+            params.put("rangeEnd", rangeEnd);
+        }
+        if (onlyAvailable) {
+            sql.append(" AND (e.confirmed_requests < e.participant_limit OR e.participant_limit = 0)");
+        }
+        sql.append(" ORDER BY ts_rank(e.search_vector, q) DESC, e.event_date, e.id LIMIT :limit OFFSET :offset");
+        params.put("limit", size);
+        params.put("offset", offset);
+
+        NativeQuery<Tuple> query = entityManager.createNativeQuery(sql.toString(), Tuple.class)
+                .unwrap(NativeQuery.class)
+                .addScalar("id", Long.class)
+                .addScalar("annotation", String.class)
+                .addScalar("title", String.class)
+                .addScalar("event_date", LocalDateTime.class)
+                .addScalar("paid", Boolean.class)
+                .addScalar("confirmed_requests", Integer.class)
+                .addScalar("views", Long.class)
+                .addScalar("stats_views", Long.class)
+                .addScalar("published_on", LocalDateTime.class)
+                .addScalar("created_on", LocalDateTime.class)
+                .addScalar("category_id", Long.class)
+                .addScalar("category_name", String.class)
+                .addScalar("initiator_id", Long.class)
+                .addScalar("initiator_name", String.class);
+        params.forEach(query::setParameter);
+
+        return query.getResultList().stream()
+                .map(row -> new EventShortView(
+                        row.get("id", Long.class),
+                        row.get("annotation", String.class),
+                        row.get("title", String.class),
+                        row.get("event_date", LocalDateTime.class),
+                        row.get("paid", Boolean.class),
+                        row.get("confirmed_requests", Integer.class),
+                        row.get("views", Long.class),
+                        row.get("stats_views", Long.class),
+                        row.get("published_on", LocalDateTime.class),
+                        row.get("created_on", LocalDateTime.class),
+                        row.get("category_id", Long.class),
+                        row.get("category_name", String.class),
+                        row.get("initiator_id", Long.class),
+                        row.get("initiator_name", String.class)))
+                .toList();
+    }
+
+    // как StringExpression.contains у Querydsl: спецсимволы LIKE экранируются '!'
+    private static String containsPattern(String text) {
+        return "%" + text.toLowerCase()
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_") + "%";
+    }
+
+    // description и location не читаются, сущности не создаются: строки сразу собираются в EventShortView
+    private JPAQuery<EventShortView> shortViews(Predicate predicate) {
+        QEvent event = QEvent.event;
+        QCategory category = new QCategory("category");
+        QUser initiator = new QUser("initiator");
+        return new JPAQuery<Event>(entityManager)
+                .select(Projections.constructor(EventShortView.class,
+                        event.id,
+                        event.annotation,
+                        event.title,
+                        event.eventDate,
+                        event.paid,
+                        event.confirmedRequests,
+                        event.views,
+                        event.statsViews,
+                        event.publishedOn,
+                        event.createdOn,
+                        category.id,
+                        category.name,
+                        initiator.id,
+                        initiator.name))
+                .from(event)
+                .join(event.category, category)
+                .join(event.initiator, initiator)
+                .where(predicate);
+    }
+
+    // связи из графа - to-one, join не размножает строки, поэтому limit/offset остаются в SQL
+    private JPAQuery<Event> query(Predicate predicate, EventFetchPlan fetchPlan) {
+        QEvent event = QEvent.event;
+        return new JPAQuery<Event>(entityManager)
+                .select(event)
+                .from(event)
+                .where(predicate)
+                .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, entityManager.getEntityGraph(fetchPlan.getGraphName()));
+    }
+
+    private static <T> Slice<T> toSlice(List<T> rows, int size) {
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+        return new SliceImpl<>(content, PageRequest.ofSize(size), hasNext);
+    }
+}
@@ -0,0 +1,116 @@
+package ru.practicum.events;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.clints.StatsClient;
+import ru.practicum.hit.ViewStatsDto;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Уникальные просмотры опубликованных событий переносятся из stats-server в events.stats_views,
+// чтобы сортировка VIEWS шла в SQL по одному источнику. Пачка - batch-size событий и один POST /stats;
+// первыми обновляются давно не синхронизированные. Если stats-server недоступен, остаются прежние значения.
+@Component
+@Slf4j
+public class EventStatsViewsSync {
+    private static final String EVENT_URI_PREFIX = "/events/";
+
+    private static final String FIND_STALE = "SELECT id, COALESCE(published_on, created_on) AS since " +
+            "FROM events " +
+            "WHERE state = 'PUBLISHED' AND (stats_views_synced_at IS NULL OR stats_views_synced_at < ?) " +
+            "ORDER BY stats_views_synced_at NULLS FIRST, id " +
+            "LIMIT ?";
+
+    private static final String UPDATE_VIEWS = "UPDATE events e SET stats_views = d.views, stats_views_synced_at = ? " +
+            "FROM (SELECT UNNEST(?) AS id, UNNEST(?) AS views) d " +
+            "WHERE e.id = d.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StatsClient statsClient;
+    private final int batchSize;
+    private final int maxBatches;
+
+    public EventStatsViewsSync(JdbcTemplate jdbcTemplate,
+                               StatsClient statsClient,
+                               @Value("${event-views.sync-batch-size:1000}") int batchSize,
+                               @Value("${event-views.sync-max-batches:10}") int maxBatches) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.statsClient = statsClient;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+    }
+
+    @Scheduled(fixedDelayString = "${event-views.sync-interval-ms:60000}")
+    public void sync() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        for (int i = 0; i < maxBatches; i++) {
+            List<StaleEvent> batch = jdbcTemplate.query(FIND_STALE,
+                    (rs, rowNum) -> new StaleEvent(rs.getLong("id"), rs.getTimestamp("since").toLocalDateTime()),
+                    Timestamp.valueOf(startedAt), batchSize);
+            if (batch.isEmpty() || !syncBatch(batch)) {
+                return;
+            }
+        }
+    }
+
+    private boolean syncBatch(List<StaleEvent> batch) {
+        Map<String, Long> ids = new HashMap<>();
+        LocalDateTime start = null;
+        for (StaleEvent event : batch) {
+            ids.put(EVENT_URI_PREFIX + event.id(), event.id());
+            if (start == null || event.since().isBefore(start)) {
+                start = event.since();
+            }
+        }
+
+        List<ViewStatsDto> stats;
+        try {
+            stats = statsClient.getStats(start, LocalDateTime.now(), List.copyOf(ids.keySet()), true);
+        } catch (Exception e) {
+            log.warn("Failed to sync views of {} events from stats server: {}", batch.size(), e.getMessage());
+            return false;
+        }
+
+        // событий без хитов в ответе нет, для них пишем 0
+        Map<Long, Long> views = new HashMap<>();
+        if (stats != null) {
+            for (ViewStatsDto viewStats : stats) {
+                Long eventId = ids.get(viewStats.getUri());
+                if (eventId != null) {
+                    views.merge(eventId, viewStats.getHits(), Long::sum);
+                }
+            }
+        }
+        List<Long> eventIds = new ArrayList<>(batch.size());
+        List<Long> eventViews = new ArrayList<>(batch.size());
+        for (StaleEvent event : batch) {
+            eventIds.add(event.id());
+            eventViews.add(views.getOrDefault(event.id(), 0L));
+        }
+
+        jdbcTemplate.update(connection -> {
+            Array idArray = connection.createArrayOf("bigint", eventIds.toArray());
+            Array viewArray = connection.createArrayOf("bigint", eventViews.toArray());
+            PreparedStatement statement = connection.prepareStatement(UPDATE_VIEWS);
+            statement.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+            statement.setArray(2, idArray);
+            statement.setArray(3, viewArray);
+            return statement;
+        });
+        log.debug("Synced views of {} events from stats server", batch.size());
+        return true;
+    }
+
+    private record StaleEvent(long id, LocalDateTime since) {
+    }
+}
@@ -0,0 +1,96 @@
+package ru.practicum.events;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Просмотры копятся в памяти (LongAdder на событие) и сбрасываются в events.views
+// одним UPDATE по расписанию, чтобы чтение события не превращалось в запись
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EventViewCounter {
+    private static final String FLUSH_VIEWS = "UPDATE events e SET views = e.views + d.delta " +
+            "FROM (SELECT UNNEST(?) AS id, UNNEST(?) AS delta) d " +
+            "WHERE e.id = d.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    public void increment(Long eventId) {
+        LongAdder adder = pending.computeIfAbsent(eventId, id -> new LongAdder());
+        adder.increment();
+        // сброс успел убрать счетчик как пустой: просмотр переносим в актуальный
+        if (pending.get(eventId) != adder) {
+            requeue(eventId, adder);
+        }
+    }
+
+    public void increment(Collection<Long> eventIds) {
+        eventIds.forEach(this::increment);
+    }
+
+    @Scheduled(fixedDelayString = "${view-counter.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        List<Long> ids = new ArrayList<>();
+        List<Long> deltas = new ArrayList<>();
+        pending.forEach((id, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta > 0) {
+                ids.add(id);
+                deltas.add(delta);
+            } else if (pending.remove(id, adder)) {
+                // событие не смотрели весь интервал: счетчик убираем, чтобы карта не росла с каждым событием
+                requeue(id, adder);
+            }
+        });
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.update(connection -> {
+                Array idArray = connection.createArrayOf("bigint", ids.toArray());
+                Array deltaArray = connection.createArrayOf("bigint", deltas.toArray());
+                PreparedStatement statement = connection.prepareStatement(FLUSH_VIEWS);
+                statement.setArray(1, idArray);
+                statement.setArray(2, deltaArray);
+                return statement;
+            });
+            log.debug("Flushed views for {} events", ids.size());
+        } catch (DataAccessException e) {
+            // приращения возвращаются в счетчики и уйдут со следующим сбросом
+            log.warn("Failed to flush views for {} events: {}", ids.size(), e.getMessage());
+            for (int i = 0; i < ids.size(); i++) {
+                pending.computeIfAbsent(ids.get(i), id -> new LongAdder()).add(deltas.get(i));
+            }
+        }
+    }
+
+    // просмотры, попавшие в уже удаленный из pending счетчик
+    private void requeue(Long eventId, LongAdder removed) {
+        long late = removed.sumThenReset();
+        if (late > 0) {
+            pending.computeIfAbsent(eventId, id -> new LongAdder()).add(late);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
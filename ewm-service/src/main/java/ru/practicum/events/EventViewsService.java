@@ -0,0 +1,104 @@
+package ru.practicum.events;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.clints.StatsClient;
+import ru.practicum.hit.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Просмотры событий берутся из stats-server (уникальные ip по /events/{id}).
+// Страница событий дозапрашивается одним POST /stats, ответ кешируется по id события на короткий TTL.
+// Маппер в stats-server не ходит: если значения нет в кеше (или stats-server недоступен),
+// показывается последнее известное значение той же метрики - events.stats_views из EventStatsViewsSync.
+@Component
+@Slf4j
+public class EventViewsService {
+    private static final String EVENT_URI_PREFIX = "/events/";
+
+    private final StatsClient statsClient;
+    private final long ttlMs;
+
+    private final Map<Long, CachedViews> cache = new ConcurrentHashMap<>();
+    // после ошибки не дергаем stats-server до истечения TTL, чтобы не ждать таймаут на каждом запросе
+    private volatile long statsUnavailableUntil;
+
+    public EventViewsService(StatsClient statsClient,
+                             @Value("${event-views.cache-ttl-ms:10000}") long ttlMs) {
+        this.statsClient = statsClient;
+        this.ttlMs = ttlMs;
+    }
+
+    public void prefetch(Collection<? extends Viewable> events) {
+        long now = System.currentTimeMillis();
+        if (events.isEmpty() || now < statsUnavailableUntil) {
+            return;
+        }
+
+        Map<String, Long> missing = new HashMap<>();
+        LocalDateTime start = null;
+        for (Viewable event : events) {
+            CachedViews cached = cache.get(event.getId());
+            if (cached != null && cached.expiresAt() > now) {
+                continue;
+            }
+            missing.put(EVENT_URI_PREFIX + event.getId(), event.getId());
+
+            LocalDateTime from = event.getPublishedOn() != null ? event.getPublishedOn() : event.getCreatedOn();
+            if (from != null && (start == null || from.isBefore(start))) {
+                start = from;
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        List<ViewStatsDto> stats;
+        try {
+            stats = statsClient.getStats(start != null ? start : LocalDateTime.now().minusYears(1),
+                    LocalDateTime.now(), List.copyOf(missing.keySet()), true);
+        } catch (Exception e) {
+            statsUnavailableUntil = now + ttlMs;
+            log.warn("Failed to load views for {} events from stats server: {}", missing.size(), e.getMessage());
+            return;
+        }
+
+        long expiresAt = System.currentTimeMillis() + ttlMs;
+        Map<Long, Long> views = new HashMap<>();
+        if (stats != null) {
+            for (ViewStatsDto viewStats : stats) {
+                Long eventId = missing.get(viewStats.getUri());
+                if (eventId != null) {
+                    views.merge(eventId, viewStats.getHits(), Long::sum);
+                }
+            }
+        }
+        // событий без хитов в ответе нет, для них кешируем 0
+        missing.values().forEach(eventId ->
+                cache.put(eventId, new CachedViews(views.getOrDefault(eventId, 0L), expiresAt)));
+    }
+
+    public Long views(Viewable event) {
+        CachedViews cached = cache.get(event.getId());
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            return cached.views();
+        }
+        return event.getStatsViews() == null ? 0L : event.getStatsViews();
+    }
+
+    @Scheduled(fixedDelayString = "${event-views.cache-ttl-ms:10000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        cache.values().removeIf(cached -> cached.expiresAt() <= now);
+    }
+
+    private record CachedViews(Long views, long expiresAt) {
+    }
+}
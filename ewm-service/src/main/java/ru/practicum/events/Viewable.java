@@ -0,0 +1,40 @@
+package ru.practicum.events;
+
+import java.time.LocalDateTime;
+
+// то, что нужно для подсчета просмотров события: сущность Event, проекция EventShortView
+// или EventDto из read model подборок (его views - снимок stats_views на момент сборки)
+public interface Viewable {
+    Long getId();
+
+    LocalDateTime getPublishedOn();
+
+    LocalDateTime getCreatedOn();
+
+    // последнее известное число уникальных просмотров из stats-server (events.stats_views)
+    Long getStatsViews();
+
+    static Viewable of(EventDto event) {
+        return new Viewable() {
+            @Override
+            public Long getId() {
+                return event.getId();
+            }
+
+            @Override
+            public LocalDateTime getPublishedOn() {
+                return event.getPublishedOn();
+            }
+
+            @Override
+            public LocalDateTime getCreatedOn() {
+                return event.getCreatedOn();
+            }
+
+            @Override
+            public Long getStatsViews() {
+                return event.getViews();
+            }
+        };
+    }
+}
@@ -5,12 +5,15 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import ru.practicum.comments.*;
 import ru.practicum.events.*;
 import ru.practicum.requests.EventRequestStatusUpdateRequest;
 import ru.practicum.requests.EventRequestStatusUpdateResult;
+import ru.practicum.requests.NewRequestBatch;
 import ru.practicum.requests.RequestDto;
 
 import java.util.List;
@@ -39,12 +42,13 @@ public class PrivateInternalController {
     }
 
     @GetMapping("/events")
-    public List<EventDto> getEvents(
+    public ResponseEntity<List<EventDto>> getEvents(
             @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "0") Integer from,
             @RequestParam(defaultValue = "10") Integer size
     ) {
-        return privateService.getUserEvents(userId, from, size);
+        return privateService.getUserEvents(userId, cursor, from, size).toResponse();
     }
 
     @PatchMapping("/events/{eventId}")
@@ -73,6 +77,15 @@ public class PrivateInternalController {
         return privateService.updateEventRequestsStatus(userId, eventId, request);
     }
 
+    @PatchMapping("events/{eventId}/requests/pending")
+    public EventRequestStatusUpdateResult confirmPendingRequests(
+            @PathVariable Long userId,
+            @PathVariable Long eventId,
+            @RequestParam(required = false) Integer confirm
+    ) {
+        return privateService.confirmPendingRequests(userId, eventId, confirm);
+    }
+
 
     //Private: Запросы на участие
     //Закрытый API для работы с запросами текущего пользователя на участие в событиях
@@ -85,6 +98,15 @@ public class PrivateInternalController {
         return privateService.addRequest(userId, eventId);
     }
 
+    @PostMapping("/requests/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public List<RequestDto> addRequests(
+            @PathVariable Long userId,
+            @RequestBody @Valid NewRequestBatch batch
+    ) {
+        return privateService.addRequests(userId, batch);
+    }
+
     @GetMapping("/requests")
     public List<RequestDto> getUserRequests(
             @PathVariable Long userId
@@ -112,7 +134,9 @@ public class PrivateInternalController {
         return privateService.addComment(userId, eventId, request);
     }
 
-    @GetMapping("events/{eventId}/comments")
+    // application/json - массив целиком, application/x-ndjson и text/event-stream - поток по мере чтения
+    @GetMapping(value = "events/{eventId}/comments", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
     public Flux<CommentDto> getComments(
             @PathVariable Long userId,
             @PathVariable Long eventId,
@@ -122,6 +146,15 @@ public class PrivateInternalController {
         return privateService.getComments(userId, eventId, from, size);
     }
 
+    @GetMapping("events/{eventId}/comments/{commentId}/thread")
+    public Flux<CommentDto> getCommentThread(
+            @PathVariable Long userId,
+            @PathVariable Long eventId,
+            @PathVariable Long commentId
+    ) {
+        return privateService.getCommentThread(userId, eventId, commentId);
+    }
+
     @PatchMapping("events/{eventId}/comments/{commentId}")
     public CommentDto updateComment(
             @PathVariable Long userId,
@@ -154,7 +187,8 @@ public class PrivateInternalController {
         return privateService.replyToComment(userId, eventId, commentId, request);
     }
 
-    @GetMapping("/comments")
+    @GetMapping(value = "/comments", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
     public Flux<CommentDto> getUserComments(
             @PathVariable Long userId,
             @RequestParam(defaultValue = "SHOW_ACTIVE") CommentsShowingParam param,
@@ -6,13 +6,17 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import reactor.core.publisher.Flux;
 import ru.practicum.categories.Category;
-import ru.practicum.categories.CategoryRepository;
+import ru.practicum.categories.CategoryCatalog;
 import ru.practicum.comments.*;
+import ru.practicum.compilations.CompilationReadModel;
 import ru.practicum.events.*;
 import ru.practicum.exception.*;
 import ru.practicum.requests.*;
@@ -22,6 +26,8 @@ import ru.practicum.user.UserRepository;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,13 +37,20 @@ import java.util.stream.Collectors;
 public class PrivateService {
     private final EventRepository eventRepository;
     private final UserRepository userRepository;
-    private final CategoryRepository categoryRepository;
+    private final CategoryCatalog categoryCatalog;
     private final RequestsRepository requestsRepository;
     private final CommentRepository commentRepository;
 
     private final EventMapper eventMapper;
     private final RequestMapper requestMapper;
     private final CommentMapper commentMapper;
+    private final CommentFeed commentFeed;
+    private final EventViewsService eventViewsService;
+    private final EventSearchCache eventSearchCache;
+    private final EventSeats eventSeats;
+    private final RequestBatchStore requestBatchStore;
+    private final CompilationReadModel compilationReadModel;
+    private final TransactionTemplate readOnlyTransactionTemplate;
 
     public EventDto addEvent(Long userId, NewEventRequest request) {
         log.info("Adding event {}", request);
@@ -45,7 +58,7 @@ public class PrivateService {
                 () -> new NotFoundException("User with id=" + userId + "  was not found")
         );
 
-        Category category = categoryRepository.findById(request.getCategory()).orElseThrow(
+        Category category = categoryCatalog.findCategory(request.getCategory()).orElseThrow(
                 () -> new NotFoundException("Category with id=" + request.getCategory() + " was not found")
         );
 
@@ -76,34 +89,45 @@ public class PrivateService {
 
     }
 
-    @Transactional(readOnly = true)
+    // просмотры из stats-server дозапрашиваются после транзакции чтения
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public EventDto getEvent(Long userId, Long eventId) {
         log.info("Getting event {}", eventId);
-        if (!userRepository.existsById(userId)) {
-            throw new NotFoundException("User with id=" + userId + " was not found");
-        }
+        EventDto event = readOnlyTransactionTemplate.execute(status -> {
+            if (!userRepository.existsById(userId)) {
+                throw new NotFoundException("User with id=" + userId + " was not found");
+            }
 
-        Event event = eventRepository.findById(eventId).orElseThrow(
-                () -> new NotFoundException("Event with id=" + eventId + " was not found")
-        );
-        log.info("Getting event {}", event);
-        return eventMapper.toDto(event);
+            Event found = eventRepository.findById(eventId).orElseThrow(
+                    () -> new NotFoundException("Event with id=" + eventId + " was not found")
+            );
+            log.info("Getting event {}", found);
+            return eventMapper.toStoredDto(found);
+        });
+        eventViewsService.prefetch(List.of(Viewable.of(event)));
+        return eventMapper.withCurrentViews(event);
     }
 
-    @Transactional(readOnly = true)
-    public List<EventDto> getUserEvents(Long userId, Integer from, Integer size) {
-        log.info("Getting user events from {} to {}", from, size);
-
-        if (!userRepository.existsById(userId)) {
-            throw new NotFoundException("User with id=" + userId + " was not found");
-        }
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public EventPage<EventDto> getUserEvents(Long userId, String cursor, Integer from, Integer size) {
+        log.info("Getting user events cursor {} from {} size {}", cursor, from, size);
 
-        Pageable pageable = PageRequest.of(from / size, size);
+        EventPage<EventDto> page = readOnlyTransactionTemplate.execute(status -> {
+            if (!userRepository.existsById(userId)) {
+                throw new NotFoundException("User with id=" + userId + " was not found");
+            }
 
-        List<Event> event = eventRepository.findByInitiatorId(userId, pageable);
-        return event.stream()
-                .map(eventMapper::toDto)
-                .collect(Collectors.toList());
+            Slice<Event> slice = eventRepository.findByInitiatorId(userId,
+                    EventFetchPlan.WITH_CATEGORY_AND_INITIATOR,
+                    cursor != null ? EventCursor.decode(cursor) : null, from, size);
+            List<Event> event = slice.getContent();
+
+            String nextCursor = slice.hasNext() ? EventCursor.afterId(event.getLast().getId()).encode() : null;
+            return new EventPage<>(event.stream()
+                    .map(eventMapper::toStoredDto)
+                    .collect(Collectors.toList()), nextCursor);
+        });
+        return new EventPage<>(eventMapper.withCurrentViews(page.getEvents()), page.getNextCursor());
     }
 
     public EventDto updateEvent(Long userId, Long eventId, UpdateEventRequest request) {
@@ -130,7 +154,7 @@ public class PrivateService {
             event.setAnnotation(request.getAnnotation());
         }
         if (request.hasCategory()) {
-            event.setCategory(categoryRepository.findById(request.getCategory()).orElseThrow(
+            event.setCategory(categoryCatalog.findCategory(request.getCategory()).orElseThrow(
                     () -> new NotFoundException("Category with id=" + request.getCategory() + " was not found")
             ));
             log.info("Set category {}", request.getCategory());
@@ -180,6 +204,8 @@ public class PrivateService {
         }
 
         event = eventRepository.save(event);
+        // в подборку админ может добавить и еще не опубликованное событие
+        compilationReadModel.eventsChanged(List.of(event.getId()));
         return eventMapper.toDto(event);
     }
 
@@ -217,6 +243,31 @@ public class PrivateService {
         log.info("Patch request for requests: {} to status: {}", request.getRequestIds(), request.getStatus());
         log.info("For event: {}", eventId);
 
+        checkModeratedEvent(userId, eventId);
+
+        // null в requestIds для lockForUpdate означает все заявки события
+        List<Long> requestIds = request.getRequestIds() == null ? List.of() : request.getRequestIds();
+        RequestBatchStore.LockedRequests locked = requestBatchStore.lockForUpdate(eventId, requestIds);
+        if (locked.other() > 0) {
+            throw new ConflictException("All requests must have status PENDING");
+        }
+
+        int confirm = request.getStatus().equals(RequestStatus.CONFIRMED) ? locked.pending() : 0;
+        return updatePendingRequests(eventId, requestIds, confirm);
+    }
+
+    // первые confirm ожидающих заявок (по времени подачи) подтверждаются в пределах свободных мест,
+    // остальные отклоняются; без confirm подтверждается столько, сколько хватит мест
+    public EventRequestStatusUpdateResult confirmPendingRequests(Long userId, Long eventId, Integer confirm) {
+        log.info("Confirm first {} pending requests for event {}", confirm, eventId);
+
+        checkModeratedEvent(userId, eventId);
+
+        int pending = requestBatchStore.lockForUpdate(eventId, null).pending();
+        return updatePendingRequests(eventId, null, confirm == null ? pending : Math.min(confirm, pending));
+    }
+
+    private void checkModeratedEvent(Long userId, Long eventId) {
         if (!userRepository.existsById(userId)) {
             throw new NotFoundException("User with id=" + userId + " was not found");
         }
@@ -233,41 +284,27 @@ public class PrivateService {
             throw new ConflictException("Request moderation switched off or Participant limit = 0. Event have " +
                     event.getConfirmedRequests() + " confirmed requests.");
         }
+        // заполненность события здесь не проверяется: отклонять можно и на полном событии,
+        // а нехватку мест для подтверждения видит только updatePendingRequests под блокировкой
+    }
 
-        if (event.getConfirmedRequests() >= event.getParticipantLimit()) {
-            throw new ConflictException("Participant limit exceeded");
-        }
-
-        List<Request> requests = requestsRepository.findByIdIn(request.getRequestIds());
-
-
-        if (requests.stream().anyMatch(req -> !req.getStatus().equals(RequestStatus.PENDING))) {
-            throw new ConflictException("All requests must have status PENDING");
-        }
-
+    // заявки уже заблокированы lockForUpdate: места и статусы меняются одним UPDATE ... RETURNING,
+    // сущности в контекст персистентности не грузятся
+    private EventRequestStatusUpdateResult updatePendingRequests(Long eventId, List<Long> requestIds, int confirm) {
         List<RequestDto> confirmed = new ArrayList<>();
         List<RequestDto> rejected = new ArrayList<>();
+        requestBatchStore.updatePending(eventId, requestIds, confirm, request ->
+                (RequestStatus.CONFIRMED.name().equals(request.getStatus()) ? confirmed : rejected).add(request));
 
-        if (request.getStatus().equals(RequestStatus.CONFIRMED)) {
-            for (Request req : requests) {
-                if (event.getConfirmedRequests() < event.getParticipantLimit()) {
-                    req.setStatus(RequestStatus.CONFIRMED);
-                    event.setConfirmedRequests(event.getConfirmedRequests() + 1);
-                    confirmed.add(requestMapper.requestToRequestDto(req));
-                } else {
-                    req.setStatus(RequestStatus.REJECTED);
-                    rejected.add(requestMapper.requestToRequestDto(req));
-                }
-            }
-        } else {
-            requests.forEach(req -> req.setStatus(RequestStatus.REJECTED));
-            rejected = requests.stream()
-                    .map(requestMapper::requestToRequestDto)
-                    .collect(Collectors.toList());
+        // исключение откатывает и отклонения, сделанные тем же запросом
+        if (confirm > 0 && confirmed.isEmpty()) {
+            throw new ParticipantLimitException("Participant limit exceeded");
         }
-
-        requestsRepository.saveAll(requests);
-        eventRepository.save(event);
+        if (!confirmed.isEmpty()) {
+            eventSearchCache.invalidate();
+            compilationReadModel.eventsChanged(List.of(eventId));
+        }
+        log.info("Event {}: {} requests confirmed, {} rejected", eventId, confirmed.size(), rejected.size());
 
         return EventRequestStatusUpdateResult.builder()
                 .confirmedRequests(confirmed)
@@ -275,20 +312,107 @@ public class PrivateService {
                 .build();
     }
 
+    // повторная подача идемпотентна: уникальный индекс (requester_id, event_id) и INSERT ... ON CONFLICT
+    // возвращают уже существующую заявку тем же запросом, без отдельной проверки на дубликат
     public RequestDto addRequest(Long userId, Long eventId) {
         log.info("Adding request from user {}, to event {}", userId, eventId);
 
-        User user = userRepository.findById(userId).orElseThrow(
-                () -> new NotFoundException("User with id=" + userId + " was not found"));
-
-        if (requestsRepository.existsByRequesterIdAndEventId(userId, eventId)) {
-            throw new DataConflictException("Event: " + eventId + " already contain request from user: " + userId);
+        if (!userRepository.existsById(userId)) {
+            throw new NotFoundException("User with id=" + userId + " was not found");
         }
 
         Event event = eventRepository.findById(eventId).orElseThrow(
                 () -> new NotFoundException("Event with id=" + eventId + " was not found")
         );
 
+        checkCanRequest(event, userId);
+        // если отключена предмодерация запросов на участие, запрос автоматически становется accepted
+        boolean autoConfirm = !event.getRequestModeration() || event.getParticipantLimit().equals(0);
+
+        RequestBatchStore.Upserted upserted = requestBatchStore.upsert(userId, eventId, LocalDateTime.now(),
+                autoConfirm ? RequestStatus.CONFIRMED : RequestStatus.PENDING);
+        if (!upserted.inserted()) {
+            log.info("Request from user {} to event {} already exists: {}", userId, eventId, upserted.request().getId());
+            return upserted.request();
+        }
+
+        // лимит проверяется только для новой заявки; исключение откатывает и вставку
+        checkParticipantLimit(event);
+        if (autoConfirm) {
+            // проверка лимита выше - только быстрый отказ, место занимается атомарно
+            if (eventSeats.reserve(eventId, 1) == 0) {
+                throw new ParticipantLimitException("Participant limit exceeded");
+            }
+            eventSearchCache.invalidate();
+            compilationReadModel.eventsChanged(List.of(eventId));
+        }
+
+        log.info("Request {} added to the event {}", upserted.request(), eventId);
+        return upserted.request();
+    }
+
+    // групповая регистрация: события грузятся разом, заявки вставляются одним INSERT,
+    // уже поданные заявки возвращаются как есть (как в addRequest); любая ошибка отменяет всю пачку
+    public List<RequestDto> addRequests(Long userId, NewRequestBatch batch) {
+        log.info("Adding requests from user {}, to events {}", userId, batch.getEventIds());
+
+        if (!userRepository.existsById(userId)) {
+            throw new NotFoundException("User with id=" + userId + " was not found");
+        }
+
+        // параллельные пачки занимают места на событиях в одном порядке
+        List<Long> eventIds = batch.getEventIds().stream()
+                .distinct()
+                .sorted()
+                .toList();
+
+        Map<Long, Event> events = eventRepository.findAllById(eventIds).stream()
+                .collect(Collectors.toMap(Event::getId, Function.identity()));
+
+        List<RequestStatus> statuses = new ArrayList<>(eventIds.size());
+        for (Long eventId : eventIds) {
+            Event event = events.get(eventId);
+            if (event == null) {
+                throw new NotFoundException("Event with id=" + eventId + " was not found");
+            }
+            checkCanRequest(event, userId);
+            statuses.add(!event.getRequestModeration() || event.getParticipantLimit().equals(0)
+                    ? RequestStatus.CONFIRMED
+                    : RequestStatus.PENDING);
+        }
+
+        List<RequestBatchStore.Upserted> upserted = requestBatchStore.upsertAll(userId, LocalDateTime.now(),
+                eventIds, statuses);
+
+        // лимит проверяется и места занимаются только под новые заявки; исключение откатывает и вставку
+        List<Long> confirmedEventIds = new ArrayList<>();
+        for (RequestBatchStore.Upserted request : upserted) {
+            if (!request.inserted()) {
+                continue;
+            }
+            Long eventId = request.request().getEvent();
+            checkParticipantLimit(events.get(eventId));
+            if (RequestStatus.CONFIRMED.name().equals(request.request().getStatus())) {
+                if (eventSeats.reserve(eventId, 1) == 0) {
+                    throw new ParticipantLimitException("Participant limit exceeded for event " + eventId);
+                }
+                confirmedEventIds.add(eventId);
+            }
+        }
+
+        List<RequestDto> requests = upserted.stream()
+                .map(RequestBatchStore.Upserted::request)
+                .toList();
+        if (!confirmedEventIds.isEmpty()) {
+            eventSearchCache.invalidate();
+            compilationReadModel.eventsChanged(confirmedEventIds);
+        }
+        log.info("{} requests from user {}, {} of them new", requests.size(), userId,
+                upserted.stream().filter(RequestBatchStore.Upserted::inserted).count());
+        return requests;
+    }
+
+    private void checkCanRequest(Event event, Long userId) {
         //409 инициатор события не может добавить запрос на участие в своем событии
         if (event.getInitiator().getId().equals(userId)) {
             throw new DataConflictException("Owner of event can not perform request");
@@ -297,27 +421,13 @@ public class PrivateService {
         if (!event.getState().equals(EventState.PUBLISHED)) {
             throw new DataConflictException("Event is not published");
         }
+    }
+
+    private void checkParticipantLimit(Event event) {
         //409 если у события достигнут лимит запросов
         if (event.getParticipantLimit() != 0 && event.getConfirmedRequests() >= event.getParticipantLimit()) {
-            throw new DataConflictException("Participant limit exceeded");
-        }
-        // если отключена предмодерация запросов на участие, запрос автоматически становется accepted
-        Request request = Request.builder()
-                .created(LocalDateTime.now())
-                .requester(user)
-                .event(event)
-                .status(RequestStatus.PENDING)
-                .build();
-
-        if (!event.getRequestModeration() || event.getParticipantLimit().equals(0)) {
-            request.setStatus(RequestStatus.CONFIRMED);
-            event.setConfirmedRequests(event.getConfirmedRequests() + 1);
+            throw new ParticipantLimitException("Participant limit exceeded");
         }
-
-        event = eventRepository.save(event);
-        request = requestsRepository.save(request);
-        log.info("Request {} added to the event {}", request, event.getId());
-        return requestMapper.requestToRequestDto(request);
     }
 
     @Transactional(readOnly = true)
@@ -341,7 +451,7 @@ public class PrivateService {
             throw new NotFoundException("User with id=" + userId + " was not found");
         }
 
-        Request request = requestsRepository.findById(requestId).orElseThrow(
+        Request request = requestsRepository.findLockedById(requestId).orElseThrow(
                 () -> new NotFoundException("Request with id=" + requestId + " was not found")
         );
 
@@ -355,13 +465,10 @@ public class PrivateService {
         );
 
         if (request.getStatus() == RequestStatus.CONFIRMED) {
-            log.info("Event {}, had confirmed requests {}",
-                    event.getId(),
-                    event.getConfirmedRequests());
-            event.setConfirmedRequests(event.getConfirmedRequests() - 1);
-            log.info("After 1 request cancellation event have confirmed requests {}",
-                    event.getConfirmedRequests());
-            eventRepository.save(event);
+            eventSeats.release(event.getId(), 1);
+            log.info("Confirmed request {} cancelled, seat on event {} released", requestId, event.getId());
+            eventSearchCache.invalidate();
+            compilationReadModel.eventsChanged(List.of(event.getId()));
         }
 
         request.setStatus(RequestStatus.CANCELED);
@@ -394,7 +501,9 @@ public class PrivateService {
                 .event(event)
                 .build();
 
-        return commentMapper.commentToCommentDto(commentRepository.save(comment));
+        comment = commentRepository.save(comment);
+        comment.assignPath();
+        return commentMapper.commentToCommentDto(comment);
 
     }
 
@@ -449,17 +558,13 @@ public class PrivateService {
 
         }
 
-        switch (command) {
-            case DELETE -> {
-                markCommentAndRepliesAsDeleted(comment);// рекурсивно удаляем ответы к удаленному комментарию, при его удалини
-                log.info("comment has been marked as deleted: {} ", comment.getId());
-            }
-            case RESTORE -> {
-                markCommentAndRepliesAsRestored(comment);
-                log.info("comment has been marked as restored: {} ", comment.getId());
-            }
-        }
-        return commentMapper.commentToCommentDto(commentRepository.save(comment));
+        // вместе с комментарием удаляются и восстанавливаются все ответы на него
+        boolean deleted = command == CommentCommand.DELETE;
+        int marked = commentRepository.markSubtreeDeleted(comment.getPath(), comment.subtreeEnd(), deleted);
+        comment.setDeleted(deleted);
+        log.info("comment {} and its replies marked as {}: {} rows", comment.getId(), command, marked);
+
+        return commentMapper.commentToCommentDto(comment);
     }
 
 
@@ -491,55 +596,37 @@ public class PrivateService {
                 .build();
 
         reply = commentRepository.save(reply);
+        reply.assignPath();
         log.info("Reply saved: {} ", reply);
 
-
-//        parentComment.getReplies().add(reply); здесь не нужно обновлять и сохранять родителя(cascade = CascadeType.ALL),
-//        commentRepository.save(parentComment); связь устанавливается через через parent_comment_id
-//        log.info("Parent comment saved: {} ", parentComment); коллекция replies - это просто "вид" из родителя
-//        При следующем чтении родителя, Hibernate автоматически заполнит replies
-
         return commentMapper.commentToCommentDto(reply);
     }
 
+    // проверки выполняются сразу, чтобы 404 ушел до начала потока; строки читает CommentFeed по мере запроса
     @Transactional(readOnly = true)
     public Flux<CommentDto> getComments(Long userId, Long eventId, Integer from, Integer size) {
         log.info("Getting comments from user {}, to event {}", userId, eventId);
         checkCommentConditions(userId, eventId);
 
-        Pageable pageable = PageRequest.of(from / size, size, Sort.by("creationDate").descending());
-
-        Page<Comment> commentPage = commentRepository.findByEvent_IdAndDeleted(eventId, false, pageable);
-
-        return Flux.fromIterable(commentPage.getContent())
-                .map(commentMapper::commentToCommentDto);
+        return commentFeed.eventComments(eventId, from, size);
     }
 
 
-    private void markCommentAndRepliesAsDeleted(Comment comment) {
-        comment.setDeleted(true);
+    // комментарий со всеми ответами одним запросом по диапазону путей, в порядке обхода ветки
+    @Transactional(readOnly = true)
+    public Flux<CommentDto> getCommentThread(Long userId, Long eventId, Long commentId) {
+        log.info("Getting thread of comment {}, event {}", commentId, eventId);
+        checkCommentConditions(userId, eventId);
 
-        if (!comment.getReplies().isEmpty()) {
-            for (Comment reply : comment.getReplies()) {
-                if (!reply.isDeleted()) {
-                    reply.setDeleted(true);
-                    markCommentAndRepliesAsDeleted(reply);
-                }
-            }
+        Comment comment = commentRepository.findById(commentId).orElseThrow(
+                () -> new NotFoundException("Comment with id=" + commentId + " was not found")
+        );
+        if (!comment.getEvent().getId().equals(eventId)) {
+            throw new NotFoundException("Comment with id=" + commentId + " is not for event=" + eventId);
         }
-    }
-
-    private void markCommentAndRepliesAsRestored(Comment comment) {
-        comment.setDeleted(false);
 
-        if (!comment.getReplies().isEmpty()) {
-            for (Comment reply : comment.getReplies()) {
-                if (reply.isDeleted()) {
-                    reply.setDeleted(false);
-                    markCommentAndRepliesAsRestored(reply);
-                }
-            }
-        }
+        return Flux.fromIterable(commentRepository.findSubtree(comment.getPath(), comment.subtreeEnd()))
+                .map(commentMapper::commentToCommentDto);
     }
 
     @Transactional(readOnly = true)
@@ -550,19 +637,12 @@ public class PrivateService {
             throw new NotFoundException("User with id=" + userId + " was not found");
         }
 
-        Pageable pageable = PageRequest.of(from / size, size, Sort.by("creationDate").descending());
-
-        Page<Comment> comments = switch (param) {
-            case SHOW_ALL -> commentRepository.findByAuthor_Id(userId, pageable);
-            case SHOW_ACTIVE -> commentRepository
-                    .findByAuthor_IdAndDeleted(userId, false, pageable);
-            case SHOW_DELETED -> commentRepository
-                    .findByAuthor_IdAndDeleted(userId, true, pageable);
+        Boolean deleted = switch (param) {
+            case SHOW_ALL -> null;
+            case SHOW_ACTIVE -> false;
+            case SHOW_DELETED -> true;
         };
-
-        return Flux.fromIterable(comments.getContent())
-                .map(commentMapper::commentToCommentDto);
-
+        return commentFeed.userComments(userId, deleted, from, size);
     }
 
 
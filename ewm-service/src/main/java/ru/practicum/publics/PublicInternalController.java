@@ -3,6 +3,7 @@ package ru.practicum.publics;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.categories.CategoryDto;
 import ru.practicum.compilations.CompilationDto;
@@ -39,10 +40,11 @@ public class PublicInternalController {
     //Публичный API для работы с подборками событий
     @GetMapping("/compilations")
     public List<CompilationDto> getCompilations(
+            @RequestParam(required = false) Boolean pinned,
             @RequestParam(defaultValue = "0") Integer from,
             @RequestParam(defaultValue = "10") Integer size
     ) {
-        return publicService.getCompilations(from, size);
+        return publicService.getCompilations(pinned, from, size);
     }
 
     @GetMapping("/compilations/{compId}")
@@ -56,7 +58,7 @@ public class PublicInternalController {
     //Публичный API для работы с событиями
 
     @GetMapping("/events")
-    public List<EventShortDto> getEvents(
+    public ResponseEntity<List<EventShortDto>> getEvents(
             @RequestParam(required = false) String text,
             @RequestParam(required = false) List<Long> categories,
             @RequestParam(required = false) Boolean paid,
@@ -66,6 +68,7 @@ public class PublicInternalController {
             @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeEnd,
             @RequestParam(defaultValue = "false") Boolean onlyAvailable,
             @RequestParam(required = false) EventSortType sort,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "0") Integer from,
             @RequestParam(defaultValue = "10") Integer size,
             @RequestHeader("X-Client-IP") String clientIp
@@ -78,9 +81,10 @@ public class PublicInternalController {
                 rangeEnd,
                 onlyAvailable,
                 sort,
+                cursor,
                 from,
                 size,
-                clientIp);
+                clientIp).toResponse();
     }
 
 
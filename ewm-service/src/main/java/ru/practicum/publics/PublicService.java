@@ -1,20 +1,24 @@
 package ru.practicum.publics;
 
+import jakarta.validation.ValidationException;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import ru.practicum.categories.Category;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.categories.CategoryCatalog;
 import ru.practicum.categories.CategoryDto;
-import ru.practicum.categories.CategoryMapper;
-import ru.practicum.categories.CategoryRepository;
 import ru.practicum.clints.StatsClient;
-import ru.practicum.compilations.Compilation;
 import ru.practicum.compilations.CompilationDto;
+import ru.practicum.compilations.CompilationReadModel;
+import ru.practicum.compilations.CompilationView;
+import ru.practicum.compilations.CompilationViewRepository;
 import ru.practicum.compilations.CompilationsMapper;
-import ru.practicum.compilations.CompilationsRepository;
 import ru.practicum.events.*;
 import ru.practicum.exception.NotFoundException;
 import ru.practicum.hit.NewHitRequest;
@@ -28,114 +32,173 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 @Transactional(readOnly = true)
 public class PublicService {
-    private final CategoryRepository categoryRepository;
+    private final CategoryCatalog categoryCatalog;
     private final EventRepository eventRepository;
-    private final CompilationsRepository cCompilationsRepository;
+    private final CompilationViewRepository compilationViewRepository;
+    private final CompilationReadModel compilationReadModel;
 
 
     private final EventMapper eventMapper;
-    private final CategoryMapper categoryMapper;
     private final CompilationsMapper compilationsMapper;
 
     private final StatsClient statsClient;
+    private final EventViewCounter eventViewCounter;
+    private final EventViewsService eventViewsService;
+    private final EventSearchCache eventSearchCache;
+    private final TransactionTemplate readOnlyTransactionTemplate;
 
+    // категории отдаются из памяти, транзакция (и соединение с БД) не нужна
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<CategoryDto> getCategories(Integer from, Integer size) {
         log.info("Getting categories from {} size {}", from, size);
-        Pageable pageable = PageRequest.of(from / size, size);
-
-        List<Category> categories = categoryRepository.findAll(pageable).getContent();
-
-        return categories.stream()
-                .map(categoryMapper::categoryToCategoryDto)
-                .collect(Collectors.toList());
+        return categoryCatalog.getCategories(from, size);
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public CategoryDto getCategory(Long id) {
         log.info("Getting category with id {}", id);
 
-        Category category = categoryRepository.findById(id).orElseThrow(
+        return categoryCatalog.find(id).orElseThrow(
                 () -> new NotFoundException("Category with id=" + id + " was not found")
         );
-
-        return categoryMapper.categoryToCategoryDto(category);
     }
 
-    public List<CompilationDto> getCompilations(Integer from, Integer size) {
-        log.info("Get compilations from {} size {}", from, size);
+    // подборки читаются из read model одним запросом, просмотры событий досчитываются поверх снимка
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<CompilationDto> getCompilations(Boolean pinned, Integer from, Integer size) {
+        log.info("Get compilations pinned {} from {} size {}", pinned, from, size);
 
-        Pageable pageable = PageRequest.of(from / size, size);
+        Pageable pageable = PageRequest.of(from / size, size, Sort.by("compilationId"));
 
-        List<Compilation> compilations = cCompilationsRepository.findAll(pageable).getContent();
+        List<CompilationView> compilations = readOnlyTransactionTemplate.execute(status -> pinned == null
+                ? compilationViewRepository.findAllBy(pageable)
+                : compilationViewRepository.findByPinned(pinned, pageable));
+        eventViewsService.prefetch(compilations.stream()
+                .flatMap(compilation -> compilation.getEvents().stream())
+                .map(Viewable::of)
+                .toList());
 
         return compilations.stream()
                 .map(compilationsMapper::toDto)
                 .collect(Collectors.toList());
     }
 
-
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public CompilationDto getCompilationById(Long compId) {
         log.info("Getting compilation with id {}", compId);
 
-        Compilation compilation = cCompilationsRepository.findById(compId).orElseThrow(
-                () -> new NotFoundException("Compilation with id=" + compId + " was not found")
-        );
+        CompilationView compilation = readOnlyTransactionTemplate.execute(status ->
+                compilationViewRepository.findById(compId)
+                        .or(() -> compilationReadModel.build(compId))
+                        .orElseThrow(() -> new NotFoundException("Compilation with id=" + compId + " was not found")));
+        eventViewsService.prefetch(compilation.getEvents().stream()
+                .map(Viewable::of)
+                .toList());
 
         return compilationsMapper.toDto(compilation);
     }
 
+    // событие читается в транзакции, просмотры из stats-server дозапрашиваются уже после нее
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public EventDto getEvent(Long id, String clientIp) {
         log.info("Getting event with id {}", id);
 
-        Event event = eventRepository.findById(id).orElseThrow(
-                () -> new NotFoundException("Event with id=" + id + " was not found")
-        );
-
-        if (event.getState() != EventState.PUBLISHED) {
-            throw new NotFoundException("Event with id=" + id + " was not found");
-        }
+        EventDto event = readOnlyTransactionTemplate.execute(status -> eventRepository.findById(id)
+                .filter(found -> found.getState() == EventState.PUBLISHED)
+                .map(eventMapper::toStoredDto)
+                .orElseThrow(() -> new NotFoundException("Event with id=" + id + " was not found")));
 
-        event.setViews(event.getViews() + 1);
-        eventRepository.save(event);
+        eventViewCounter.increment(id);
         sendHitToStats(clientIp, "/events/" + id);
+        eventViewsService.prefetch(List.of(Viewable.of(event)));
 
-
-        return eventMapper.toDto(event);
+        return eventMapper.withCurrentViews(event);
     }
 
 
-    public List<EventShortDto> getEvents(String text,
-                                    List<Long> categories,
-                                    Boolean paid,
-                                    LocalDateTime rangeStart,
-                                    LocalDateTime rangeEnd,
-                                    Boolean onlyAvailable,
-                                    EventSortType sort,
-                                    Integer from,
-                                    Integer size, String clientIp
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public EventPage<EventShortDto> getEvents(String text,
+                                              List<Long> categories,
+                                              Boolean paid,
+                                              LocalDateTime rangeStart,
+                                              LocalDateTime rangeEnd,
+                                              Boolean onlyAvailable,
+                                              EventSortType sort,
+                                              String cursor,
+                                              Integer from,
+                                              Integer size, String clientIp
     ) {
-        List<Event> events = eventRepository.findByPublicFilters(
-                text,
-                categories,
-                paid,
-                rangeStart,
-                rangeEnd,
-                onlyAvailable,
-                sort,
-                from,
-                size);
-
-        if (!events.isEmpty()) {
-            events.stream().forEach(event -> {
-                event.setViews(event.getViews() + 1);
-                eventRepository.save(event);
-            });
-        }
+        EventSearchCache.Key key = eventSearchCache.key(text, categories, paid, rangeStart, rangeEnd,
+                onlyAvailable, sort, cursor, from, size);
+        EventPage<EventShortView> page = eventSearchCache.get(key, () -> readOnlyTransactionTemplate.execute(status ->
+                searchEvents(text, categories, paid, rangeStart, rangeEnd, onlyAvailable, sort, cursor, from, size)));
+
+        List<EventShortView> events = page.getEvents();
+        eventViewsService.prefetch(events);
+        eventViewCounter.increment(events.stream().map(EventShortView::getId).toList());
         sendHitToStats(clientIp, "/events");
 
-        return events.stream()
+        return new EventPage<>(events.stream()
                 .map(eventMapper::toShortDto)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()), page.getNextCursor());
+
+    }
+
+    private EventPage<EventShortView> searchEvents(String text,
+                                                   List<Long> categories,
+                                                   Boolean paid,
+                                                   LocalDateTime rangeStart,
+                                                   LocalDateTime rangeEnd,
+                                                   Boolean onlyAvailable,
+                                                   EventSortType sort,
+                                                   String cursor,
+                                                   Integer from,
+                                                   Integer size) {
+        EventCursor after = cursor != null ? EventCursor.decode(cursor) : null;
+
+        List<EventShortView> events;
+        String nextCursor = null;
+        if (sort == EventSortType.VIEWS) {
+            Slice<EventShortView> slice = eventRepository.findByPublicFiltersOrderByViews(
+                    text,
+                    categories,
+                    paid,
+                    rangeStart,
+                    rangeEnd,
+                    onlyAvailable,
+                    after,
+                    from,
+                    size);
+            events = slice.getContent();
+            if (slice.hasNext()) {
+                EventShortView last = events.getLast();
+                nextCursor = EventCursor.afterViews(last.getStatsViews(), last.getId()).encode();
+            }
+        } else if (sort == EventSortType.RELEVANCE && text != null && !text.isBlank()) {
+            if (after != null) {
+                throw new ValidationException("Cursor is not supported for sort " + EventSortType.RELEVANCE);
+            }
+            events = eventRepository.findShortByRelevance(text, categories, paid, rangeStart, rangeEnd,
+                    onlyAvailable, (long) (from / size) * size, size);
+        } else {
+            Slice<EventShortView> slice = eventRepository.findByPublicFilters(
+                    text,
+                    categories,
+                    paid,
+                    rangeStart,
+                    rangeEnd,
+                    onlyAvailable,
+                    after,
+                    from,
+                    size);
+            events = slice.getContent();
+            if (slice.hasNext()) {
+                EventShortView last = events.getLast();
+                nextCursor = EventCursor.afterDate(last.getEventDate(), last.getId()).encode();
+            }
+        }
 
+        return new EventPage<>(events, nextCursor);
     }
 
     private void sendHitToStats(String clientIp, String uri) {
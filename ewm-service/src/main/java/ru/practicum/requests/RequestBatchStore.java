@@ -0,0 +1,191 @@
+package ru.practicum.requests;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Запись заявок на участие напрямую через JDBC, без сущностей Request.
+// Все методы работают в транзакции вызывающего сервиса.
+@Repository
+@RequiredArgsConstructor
+public class RequestBatchStore {
+    // все заявки пачки одним INSERT (у IDENTITY-ключа Hibernate не батчит вставки);
+    // вместо уже существующих заявок возвращаются они сами, как в UPSERT_REQUEST
+    private static final String UPSERT_REQUESTS = "WITH ins AS (" +
+            "INSERT INTO requests (event_id, requester_id, created, status) " +
+            "SELECT d.event_id, ?, ?, d.status FROM (SELECT UNNEST(?) AS event_id, UNNEST(?) AS status) d " +
+            "ON CONFLICT (requester_id, event_id) DO NOTHING " +
+            "RETURNING id, event_id, requester_id, created, status) " +
+            "SELECT id, event_id, requester_id, created, status, true AS inserted FROM ins " +
+            "UNION ALL " +
+            "SELECT id, event_id, requester_id, created, status, false FROM requests " +
+            "WHERE requester_id = ? AND event_id = ANY(?) AND event_id NOT IN (SELECT event_id FROM ins)";
+
+    // новая заявка или уже существующая - одним запросом
+    private static final String UPSERT_REQUEST = "WITH ins AS (" +
+            "INSERT INTO requests (event_id, requester_id, created, status) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (requester_id, event_id) DO NOTHING " +
+            "RETURNING id, event_id, requester_id, created, status) " +
+            "SELECT id, event_id, requester_id, created, status, true AS inserted FROM ins " +
+            "UNION ALL " +
+            "SELECT id, event_id, requester_id, created, status, false FROM requests " +
+            "WHERE requester_id = ? AND event_id = ? AND NOT EXISTS (SELECT 1 FROM ins)";
+
+    // конфликтующая строка закоммичена после снимка UPSERT_REQUEST: виден только новым запросом
+    private static final String FIND_REQUEST = "SELECT id, event_id, requester_id, created, status, false AS inserted " +
+            "FROM requests WHERE requester_id = ? AND event_id = ?";
+
+    private static final String FIND_REQUESTS = "SELECT id, event_id, requester_id, created, status, " +
+            "false AS inserted FROM requests WHERE requester_id = ? AND event_id = ANY(?)";
+
+    // порядок по id: параллельные транзакции берут блокировки в одном порядке
+    private static final String LOCK_REQUESTS = "SELECT COUNT(*) FILTER (WHERE l.status = 'PENDING') AS pending, " +
+            "COUNT(*) FILTER (WHERE l.status <> 'PENDING') AS other " +
+            "FROM (SELECT id, status FROM requests WHERE event_id = ? AND id = ANY(?) ORDER BY id FOR UPDATE) l";
+
+    private static final String LOCK_PENDING = "SELECT COUNT(*) AS pending, 0 AS other " +
+            "FROM (SELECT id FROM requests WHERE event_id = ? AND status = 'PENDING' ORDER BY id FOR UPDATE) l";
+
+    // строка события блокируется отдельным запросом до UPDATE_PENDING: если ждать ее внутри него,
+    // запрос остается со старым снимком, и seats встает за своей же блокировкой в очередь ожидающих
+    // (взаимная блокировка между параллельными подтверждениями)
+    private static final String LOCK_EVENT = "SELECT id FROM events WHERE id = ? FOR NO KEY UPDATE";
+
+    // места и статусы одним запросом: строка события уже заблокирована LOCK_EVENT (заявки - lockForUpdate),
+    // granted - сколько из confirm влезает в лимит; первые granted ожидающих заявок
+    // по времени подачи подтверждаются, остальные отклоняются, confirmed_requests растет ровно
+    // на число подтвержденных. participant_limit = 0 - без ограничения, как в EventSeats
+    private static final String UPDATE_PENDING = "WITH ev AS (" +
+            "SELECT id, CASE WHEN participant_limit = 0 THEN ? " +
+            "ELSE LEAST(?, GREATEST(participant_limit - confirmed_requests, 0)) END AS granted " +
+            "FROM events WHERE id = ?), " +
+            "target AS (" +
+            "SELECT id, ROW_NUMBER() OVER (ORDER BY created, id) AS rn FROM requests " +
+            "WHERE event_id = ? AND status = 'PENDING'%s), " +
+            "upd AS (" +
+            "UPDATE requests r SET status = CASE WHEN t.rn <= ev.granted THEN 'CONFIRMED' ELSE 'REJECTED' END " +
+            "FROM target t, ev WHERE r.id = t.id " +
+            "RETURNING r.id, r.event_id, r.requester_id, r.created, r.status), " +
+            "seats AS (" +
+            "UPDATE events e SET confirmed_requests = e.confirmed_requests + c.confirmed " +
+            "FROM (SELECT COUNT(*) AS confirmed FROM upd WHERE status = 'CONFIRMED') c " +
+            "WHERE e.id = ? AND c.confirmed > 0) " +
+            "SELECT id, event_id, requester_id, created, status FROM upd";
+
+    private static final String UPDATE_REQUESTS = String.format(UPDATE_PENDING, " AND id = ANY(?)");
+    private static final String UPDATE_ALL_PENDING = String.format(UPDATE_PENDING, "");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // по строке на каждое событие из eventIds, в порядке eventIds
+    public List<Upserted> upsertAll(Long requesterId,
+                                    LocalDateTime created,
+                                    List<Long> eventIds,
+                                    List<RequestStatus> statuses) {
+        Map<Long, Upserted> byEvent = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            Array eventIdArray = connection.createArrayOf("bigint", eventIds.toArray());
+            Array statusArray = connection.createArrayOf("varchar",
+                    statuses.stream().map(RequestStatus::name).toArray());
+            PreparedStatement statement = connection.prepareStatement(UPSERT_REQUESTS);
+            statement.setLong(1, requesterId);
+            statement.setTimestamp(2, Timestamp.valueOf(created));
+            statement.setArray(3, eventIdArray);
+            statement.setArray(4, statusArray);
+            statement.setLong(5, requesterId);
+            statement.setArray(6, eventIdArray);
+            return statement;
+        }, rs -> {
+            Upserted upserted = toUpserted(rs);
+            byEvent.put(upserted.request().getEvent(), upserted);
+        });
+
+        // конфликтующие строки, закоммиченные после снимка UPSERT_REQUESTS
+        List<Long> missing = eventIds.stream().filter(eventId -> !byEvent.containsKey(eventId)).toList();
+        if (!missing.isEmpty()) {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(FIND_REQUESTS);
+                statement.setLong(1, requesterId);
+                statement.setArray(2, connection.createArrayOf("bigint", missing.toArray()));
+                return statement;
+            }, rs -> {
+                Upserted upserted = toUpserted(rs);
+                byEvent.put(upserted.request().getEvent(), upserted);
+            });
+        }
+        return eventIds.stream().map(byEvent::get).toList();
+    }
+
+    public Upserted upsert(Long requesterId, Long eventId, LocalDateTime created, RequestStatus status) {
+        List<Upserted> upserted = jdbcTemplate.query(UPSERT_REQUEST, (rs, rowNum) -> toUpserted(rs),
+                eventId, requesterId, Timestamp.valueOf(created), status.name(), requesterId, eventId);
+        if (upserted.isEmpty()) {
+            upserted = jdbcTemplate.query(FIND_REQUEST, (rs, rowNum) -> toUpserted(rs), requesterId, eventId);
+        }
+        return upserted.get(0);
+    }
+
+    // requestIds == null - все ожидающие заявки события
+    public LockedRequests lockForUpdate(Long eventId, List<Long> requestIds) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(requestIds == null ? LOCK_PENDING : LOCK_REQUESTS);
+            statement.setLong(1, eventId);
+            if (requestIds != null) {
+                statement.setArray(2, connection.createArrayOf("bigint", requestIds.toArray()));
+            }
+            return statement;
+        }, (rs, rowNum) -> new LockedRequests(rs.getInt("pending"), rs.getInt("other"))).get(0);
+    }
+
+    // строки отдаются в sink по мере чтения RETURNING
+    public void updatePending(Long eventId, List<Long> requestIds, int confirm, Consumer<RequestDto> sink) {
+        jdbcTemplate.queryForList(LOCK_EVENT, Long.class, eventId);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    requestIds == null ? UPDATE_ALL_PENDING : UPDATE_REQUESTS);
+            int index = 1;
+            statement.setInt(index++, confirm);
+            statement.setInt(index++, confirm);
+            statement.setLong(index++, eventId);
+            statement.setLong(index++, eventId);
+            if (requestIds != null) {
+                statement.setArray(index++, connection.createArrayOf("bigint", requestIds.toArray()));
+            }
+            statement.setLong(index, eventId);
+            return statement;
+        }, rs -> {
+            sink.accept(toDto(rs));
+        });
+    }
+
+    private static RequestDto toDto(ResultSet rs) throws SQLException {
+        return RequestDto.builder()
+                .id(rs.getLong("id"))
+                .event(rs.getLong("event_id"))
+                .requester(rs.getLong("requester_id"))
+                .created(rs.getTimestamp("created").toLocalDateTime())
+                .status(rs.getString("status"))
+                .build();
+    }
+
+    private static Upserted toUpserted(ResultSet rs) throws SQLException {
+        return new Upserted(toDto(rs), rs.getBoolean("inserted"));
+    }
+
+    public record LockedRequests(int pending, int other) {
+    }
+
+    public record Upserted(RequestDto request, boolean inserted) {
+    }
+}
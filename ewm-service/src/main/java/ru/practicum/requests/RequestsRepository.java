@@ -1,17 +1,18 @@
 package ru.practicum.requests;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 
-import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface RequestsRepository extends JpaRepository<Request, Long> {
 
-    boolean existsByRequesterIdAndEventId(Long requesterId, Long eventId);
-
     List<Request> findByRequester_Id(Long requesterId);
 
     List<Request> findByEvent_Id(Long eventId);
 
-    List<Request> findByIdIn(Collection<Long> ids);
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Request> findLockedById(Long id);
 }
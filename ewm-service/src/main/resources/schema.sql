@@ -67,6 +67,19 @@ CREATE TABLE IF NOT EXISTS compilation_events
     CONSTRAINT fk_compilation_events_event FOREIGN KEY (event_id) REFERENCES events (id) ON DELETE CASCADE
 );
 
+-- read model публичных подборок: события подборки уже собраны в JSON вместе с категорией и инициатором,
+-- пересобирается CompilationReadModel после изменения подборки или входящих в нее событий
+CREATE TABLE IF NOT EXISTS compilation_views
+(
+    compilation_id BIGINT      NOT NULL PRIMARY KEY,
+    pinned         BOOLEAN     NOT NULL,
+    title          VARCHAR(50) NOT NULL,
+    events         JSONB       NOT NULL,
+
+    CONSTRAINT fk_compilation_views_compilation FOREIGN KEY (compilation_id)
+        REFERENCES compilations (id) ON DELETE CASCADE
+);
+
 
 CREATE TABLE IF NOT EXISTS comments
 (
@@ -85,6 +98,22 @@ CREATE TABLE IF NOT EXISTS comments
     FOREIGN KEY (parent_comment_id) REFERENCES comments (id)
 );
 
+-- полнотекстовый поиск по событиям: вектор пересчитывается самой БД при каждой записи
+ALTER TABLE events
+    ADD COLUMN IF NOT EXISTS search_vector TSVECTOR GENERATED ALWAYS AS (
+        setweight(to_tsvector('simple', coalesce(title, '')), 'A') ||
+        setweight(to_tsvector('simple', coalesce(annotation, '')), 'B') ||
+        setweight(to_tsvector('simple', coalesce(description, '')), 'C')
+        ) STORED;
+
+-- уникальные просмотры из stats-server, их переносит EventStatsViewsSync; по ним сортирует VIEWS
+ALTER TABLE events
+    ADD COLUMN IF NOT EXISTS stats_views BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE events
+    ADD COLUMN IF NOT EXISTS stats_views_synced_at TIMESTAMP;
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
 -- users
 CREATE INDEX IF NOT EXISTS idx_users_email ON users (email);
 
@@ -93,15 +122,41 @@ CREATE INDEX IF NOT EXISTS idx_categories_name ON categories (name);
 
 -- events
 CREATE INDEX IF NOT EXISTS idx_events_category ON events (category_id);
-CREATE INDEX IF NOT EXISTS idx_events_initiator ON events (initiator_id);
+-- (ключ сортировки, id) - ключи keyset-пагинации; одиночные индексы ими покрываются
+DROP INDEX IF EXISTS idx_events_initiator;
+CREATE INDEX IF NOT EXISTS idx_events_initiator_id ON events (initiator_id, id);
 CREATE INDEX IF NOT EXISTS idx_events_state ON events (state);
-CREATE INDEX IF NOT EXISTS idx_events_event_date ON events (event_date);
+DROP INDEX IF EXISTS idx_events_event_date;
+CREATE INDEX IF NOT EXISTS idx_events_event_date_id ON events (event_date, id);
 CREATE INDEX IF NOT EXISTS idx_events_published ON events (published_on);
+-- search_vector нужен только для ts_rank сортировки RELEVANCE, отбор по text идет по триграммам
+DROP INDEX IF EXISTS idx_events_search_vector;
+-- сортировка VIEWS и ее курсор: seek по (stats_views, id) в порядке индекса
+CREATE INDEX IF NOT EXISTS idx_events_stats_views ON events (stats_views DESC, id)
+    WHERE state = 'PUBLISHED';
+-- очередь синхронизации просмотров: сначала ни разу не обновленные, потом самые давние
+CREATE INDEX IF NOT EXISTS idx_events_stats_views_synced ON events (stats_views_synced_at NULLS FIRST, id)
+    WHERE state = 'PUBLISHED';
+-- фильтр text - регистронезависимый поиск подстроки (lower(x) LIKE '%text%'), его обслуживают триграммы
+CREATE INDEX IF NOT EXISTS idx_events_annotation_trgm ON events USING GIN (lower(annotation) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_events_description_trgm ON events USING GIN (lower(description) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_events_title_trgm ON events USING GIN (lower(title) gin_trgm_ops);
 
 -- requests
 CREATE INDEX IF NOT EXISTS idx_requests_event ON requests (event_id);
-CREATE INDEX IF NOT EXISTS idx_requests_requester ON requests (requester_id);
+-- одна заявка пользователя на событие; индекс заодно обслуживает поиск заявок пользователя.
+-- дубликаты, оставшиеся от проверки без ограничения, один раз схлопываются до самой ранней заявки
+DELETE FROM requests r
+    USING requests d
+WHERE r.requester_id = d.requester_id
+  AND r.event_id = d.event_id
+  AND r.id > d.id
+  AND NOT EXISTS (SELECT 1 FROM pg_indexes WHERE indexname = 'uq_requests_requester_event');
+CREATE UNIQUE INDEX IF NOT EXISTS uq_requests_requester_event ON requests (requester_id, event_id);
+DROP INDEX IF EXISTS idx_requests_requester;
 CREATE INDEX IF NOT EXISTS idx_requests_status ON requests (status);
+-- ожидающие заявки события в порядке подачи: массовое подтверждение/отклонение
+CREATE INDEX IF NOT EXISTS idx_requests_event_status_created ON requests (event_id, status, created, id);
 
 -- compilations
 CREATE INDEX IF NOT EXISTS idx_compilations_pinned ON compilations (pinned);
@@ -111,9 +166,34 @@ CREATE INDEX IF NOT EXISTS idx_compilations_title ON compilations (title);
 CREATE INDEX IF NOT EXISTS idx_compilation_events_compilation ON compilation_events (compilation_id);
 CREATE INDEX IF NOT EXISTS idx_compilation_events_event ON compilation_events (event_id);
 
+-- compilation_views
+CREATE INDEX IF NOT EXISTS idx_compilation_views_pinned ON compilation_views (pinned, compilation_id);
+
 -- comments
-CREATE INDEX IF NOT EXISTS idx_comments_user ON comments (user_id);
+-- ленты комментариев (CommentFeed): keyset по (created_at, id) от новых к старым
+CREATE INDEX IF NOT EXISTS idx_comments_user_created_id ON comments (user_id, created_at, id);
+DROP INDEX IF EXISTS idx_comments_user;
 CREATE INDEX IF NOT EXISTS idx_comments_event ON comments (event_id);
 CREATE INDEX IF NOT EXISTS idx_comments_parent ON comments (parent_comment_id);
+
+-- материализованный путь ветки комментариев (см. Comment.path); COLLATE "C" - побайтовый порядок,
+-- чтобы сортировка по пути была обходом ветки, а поддерево было непрерывным диапазоном индекса.
+-- пути комментариев, созданных до появления колонки, один раз достраиваются рекурсивным запросом
+ALTER TABLE comments
+    ADD COLUMN IF NOT EXISTS path VARCHAR COLLATE "C";
+WITH RECURSIVE tree AS (SELECT id, lpad(id::text, 19, '0') || '/' AS path
+                        FROM comments
+                        WHERE parent_comment_id IS NULL
+                          AND NOT EXISTS (SELECT 1 FROM pg_indexes WHERE indexname = 'idx_comments_path')
+                        UNION ALL
+                        SELECT c.id, t.path || lpad(c.id::text, 19, '0') || '/'
+                        FROM comments c
+                                 JOIN tree t ON c.parent_comment_id = t.id)
+UPDATE comments c
+SET path = tree.path
+FROM tree
+WHERE c.id = tree.id;
+CREATE INDEX IF NOT EXISTS idx_comments_path ON comments (path);
 CREATE INDEX IF NOT EXISTS idx_comments_created ON comments (created_at);
-CREATE INDEX IF NOT EXISTS idx_comments_event_created ON comments (event_id, created_at);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_comments_event_created_id ON comments (event_id, created_at, id);
+DROP INDEX IF EXISTS idx_comments_event_created;
\ No newline at end of file
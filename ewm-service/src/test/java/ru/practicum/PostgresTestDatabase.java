@@ -0,0 +1,46 @@
+package ru.practicum;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// Postgres для тестов: запросы используют tsvector, UNNEST и ON CONFLICT, H2 их не поймет.
+// EWM_TEST_JDBC_URL (+ EWM_TEST_JDBC_USER / EWM_TEST_JDBC_PASSWORD) указывает на готовую базу,
+// иначе на JVM поднимается один embedded Postgres; initdb не запускается от root, там нужна внешняя база
+public class PostgresTestDatabase implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+    private static EmbeddedPostgres embedded;
+
+    @Override
+    public void initialize(ConfigurableApplicationContext context) {
+        String url = System.getenv("EWM_TEST_JDBC_URL");
+        if (url != null) {
+            TestPropertyValues.of(
+                    "spring.datasource.url=" + url,
+                    "spring.datasource.username=" + System.getenv().getOrDefault("EWM_TEST_JDBC_USER", "postgres"),
+                    "spring.datasource.password=" + System.getenv().getOrDefault("EWM_TEST_JDBC_PASSWORD", "")
+            ).applyTo(context);
+            return;
+        }
+
+        TestPropertyValues.of(
+                "spring.datasource.url=" + embedded().getJdbcUrl("postgres", "postgres"),
+                "spring.datasource.username=postgres",
+                "spring.datasource.password="
+        ).applyTo(context);
+    }
+
+    private static synchronized EmbeddedPostgres embedded() {
+        if (embedded == null) {
+            try {
+                embedded = EmbeddedPostgres.start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to start embedded Postgres", e);
+            }
+        }
+        return embedded;
+    }
+}
@@ -0,0 +1,137 @@
+package ru.practicum.events;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ContextConfiguration;
+import ru.practicum.PostgresTestDatabase;
+import ru.practicum.categories.Category;
+import ru.practicum.user.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// страница событий вместе с категорией и инициатором читается одним запросом, сколько бы строк в ней ни было
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(initializers = PostgresTestDatabase.class)
+class EventListingStatementsTest {
+    private static final int SMALL_PAGE = 3;
+    private static final int LARGE_PAGE = 12;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private final List<Event> events = new ArrayList<>();
+    private final List<Long> categoryIds = new ArrayList<>();
+    private final List<Long> initiatorIds = new ArrayList<>();
+    private User sameInitiator;
+
+    @BeforeEach
+    void seed() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // у каждого события своя категория и свой инициатор: ленивая догрузка дала бы 2N запросов
+        String suffix = UUID.randomUUID().toString();
+        sameInitiator = entityManager.persist(user("same-" + suffix));
+        for (int i = 0; i < LARGE_PAGE; i++) {
+            Category category = entityManager.persist(Category.builder().name("category-" + i + "-" + suffix).build());
+            User initiator = entityManager.persist(user(i + "-" + suffix));
+            categoryIds.add(category.getId());
+            initiatorIds.add(initiator.getId());
+            events.add(entityManager.persist(event(category, initiator)));
+            entityManager.persist(event(category, sameInitiator));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void findByInitiatorIdUsesOneStatementPerPage() {
+        assertConstantStatements(size -> () -> eventRepository.findByInitiatorId(sameInitiator.getId(),
+                EventFetchPlan.WITH_CATEGORY_AND_INITIATOR, null, 0, size).getContent());
+    }
+
+    @Test
+    void findByAdminFiltersUsesOneStatementPerPage() {
+        assertConstantStatements(size -> () -> eventRepository.findByAdminFilters(initiatorIds, null, null,
+                null, null, EventFetchPlan.WITH_CATEGORY_AND_INITIATOR, null, 0, size).getContent());
+    }
+
+    @Test
+    void findByIdInUsesOneStatement() {
+        assertConstantStatements(size -> () -> eventRepository.findWithCategoryAndInitiatorByIdIn(
+                events.subList(0, size).stream().map(Event::getId).toList()));
+    }
+
+    @Test
+    void findByPublicFiltersUsesOneStatementPerPage() {
+        assertThat(publicPageStatements(SMALL_PAGE)).isEqualTo(1);
+        assertThat(publicPageStatements(LARGE_PAGE)).isEqualTo(1);
+    }
+
+    private void assertConstantStatements(IntFunction<Supplier<List<Event>>> page) {
+        assertThat(statements(page.apply(SMALL_PAGE))).isEqualTo(1);
+        assertThat(statements(page.apply(LARGE_PAGE))).isEqualTo(1);
+    }
+
+    // считаются и сама выборка, и все, что понадобится EventMapper: имена категории и инициатора
+    private long statements(Supplier<List<Event>> page) {
+        entityManager.clear();
+        statistics.clear();
+        List<Event> result = page.get();
+        assertThat(result).isNotEmpty();
+        result.forEach(event -> {
+            assertThat(event.getCategory().getName()).isNotNull();
+            assertThat(event.getInitiator().getName()).isNotNull();
+        });
+        return statistics.getPrepareStatementCount();
+    }
+
+    private long publicPageStatements(int size) {
+        entityManager.clear();
+        statistics.clear();
+        List<EventShortView> result = eventRepository.findByPublicFilters(null, categoryIds, null, null, null,
+                false, null, 0, size).getContent();
+        assertThat(result).hasSize(size);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static User user(String suffix) {
+        return User.builder().name("user-" + suffix).email("user-" + suffix + "@example.com").build();
+    }
+
+    private static Event event(Category category, User initiator) {
+        return Event.builder()
+                .annotation("annotation")
+                .description("description")
+                .title("title")
+                .category(category)
+                .initiator(initiator)
+                .eventDate(LocalDateTime.now().plusDays(10))
+                .createdOn(LocalDateTime.now())
+                .publishedOn(LocalDateTime.now())
+                .state(EventState.PUBLISHED)
+                .location(new Location(55.0, 37.0))
+                .build();
+    }
+}
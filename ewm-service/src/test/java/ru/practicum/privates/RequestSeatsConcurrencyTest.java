@@ -0,0 +1,220 @@
+package ru.practicum.privates;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import ru.practicum.PostgresTestDatabase;
+import ru.practicum.exception.ParticipantLimitException;
+import ru.practicum.requests.EventRequestStatusUpdateRequest;
+import ru.practicum.requests.NewRequestBatch;
+import ru.practicum.requests.RequestDto;
+import ru.practicum.requests.RequestStatus;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Заявки на одно событие с лимитом LIMIT подают и подтверждают THREADS потоков одновременно:
+// занятых мест ровно LIMIT, столько же заявок CONFIRMED, остальным - ParticipantLimitException
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "event-views.sync-max-batches=0")
+@ContextConfiguration(initializers = PostgresTestDatabase.class)
+class RequestSeatsConcurrencyTest {
+    private static final int LIMIT = 5;
+    private static final int REQUESTERS = 40;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private PrivateService privateService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> userIds = new ArrayList<>();
+    private Long categoryId;
+    private Long initiatorId;
+
+    @BeforeEach
+    void seed() {
+        String suffix = UUID.randomUUID().toString();
+        categoryId = jdbcTemplate.queryForObject(
+                "INSERT INTO categories (name) VALUES (?) RETURNING id", Long.class, "category-" + suffix);
+        initiatorId = user("initiator-" + suffix);
+        for (int i = 0; i < REQUESTERS; i++) {
+            user("requester-" + i + "-" + suffix);
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        // события и заявки удаляются каскадом
+        jdbcTemplate.update("DELETE FROM users WHERE id = ANY(?)", (Object) userIds.toArray(Long[]::new));
+        jdbcTemplate.update("DELETE FROM categories WHERE id = ?", categoryId);
+    }
+
+    @Test
+    void autoConfirmedRequestsDoNotOversubscribe() throws Exception {
+        Long eventId = event(false);
+
+        Outcome outcome = race(requesterIds(), requesterId -> () -> {
+            RequestDto request = privateService.addRequest(requesterId, eventId);
+            assertThat(request.getStatus()).isEqualTo(RequestStatus.CONFIRMED.name());
+            return null;
+        });
+
+        assertThat(outcome.succeeded()).isEqualTo(LIMIT);
+        assertThat(outcome.limitExceeded()).isEqualTo(REQUESTERS - LIMIT);
+        assertSeats(eventId);
+    }
+
+    @Test
+    void moderatedConfirmationsDoNotOversubscribe() throws Exception {
+        Long eventId = event(true);
+
+        // каждый подает заявку, и инициатор тут же подтверждает именно ее
+        Outcome outcome = race(requesterIds(), requesterId -> () -> {
+            RequestDto request = privateService.addRequest(requesterId, eventId);
+            privateService.updateEventRequestsStatus(initiatorId, eventId, EventRequestStatusUpdateRequest.builder()
+                    .requestIds(List.of(request.getId()))
+                    .status(RequestStatus.CONFIRMED)
+                    .build());
+            return null;
+        });
+
+        assertThat(outcome.succeeded()).isEqualTo(LIMIT);
+        assertThat(outcome.limitExceeded()).isEqualTo(REQUESTERS - LIMIT);
+        assertSeats(eventId);
+    }
+
+    // на заполненном событии отклонять можно, подтверждать - нет
+    @Test
+    void fullEventStillAcceptsRejections() {
+        Long eventId = event(true);
+        List<Long> requestIds = requesterIds().subList(0, LIMIT + 2).stream()
+                .map(requesterId -> privateService.addRequest(requesterId, eventId).getId())
+                .toList();
+        privateService.updateEventRequestsStatus(initiatorId, eventId, EventRequestStatusUpdateRequest.builder()
+                .requestIds(requestIds.subList(0, LIMIT))
+                .status(RequestStatus.CONFIRMED)
+                .build());
+
+        List<Long> rest = requestIds.subList(LIMIT, requestIds.size());
+        assertThatThrownBy(() -> privateService.updateEventRequestsStatus(initiatorId, eventId,
+                EventRequestStatusUpdateRequest.builder()
+                        .requestIds(rest)
+                        .status(RequestStatus.CONFIRMED)
+                        .build()))
+                .isInstanceOf(ParticipantLimitException.class);
+
+        assertThat(privateService.updateEventRequestsStatus(initiatorId, eventId,
+                EventRequestStatusUpdateRequest.builder()
+                        .requestIds(rest.subList(0, 1))
+                        .status(RequestStatus.REJECTED)
+                        .build()).getRejectedRequests()).hasSize(1);
+        assertThat(privateService.confirmPendingRequests(initiatorId, eventId, 0).getRejectedRequests())
+                .hasSize(1);
+        assertSeats(eventId);
+    }
+
+    // повтор пачки отдает те же заявки и не занимает места второй раз
+    @Test
+    void repeatedBatchReturnsExistingRequests() {
+        Long autoConfirmed = event(false);
+        Long moderated = event(true);
+        Long requesterId = requesterIds().getFirst();
+        privateService.addRequest(requesterId, moderated);
+
+        NewRequestBatch batch = NewRequestBatch.builder().eventIds(List.of(moderated, autoConfirmed)).build();
+        List<RequestDto> first = privateService.addRequests(requesterId, batch);
+        List<RequestDto> second = privateService.addRequests(requesterId, batch);
+
+        assertThat(second).extracting(RequestDto::getId)
+                .containsExactlyElementsOf(first.stream().map(RequestDto::getId).toList());
+        Integer seats = jdbcTemplate.queryForObject(
+                "SELECT confirmed_requests FROM events WHERE id = ?", Integer.class, autoConfirmed);
+        assertThat(seats).isEqualTo(1);
+    }
+
+    private void assertSeats(Long eventId) {
+        Integer seats = jdbcTemplate.queryForObject(
+                "SELECT confirmed_requests FROM events WHERE id = ?", Integer.class, eventId);
+        Integer confirmed = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM requests WHERE event_id = ? AND status = 'CONFIRMED'", Integer.class, eventId);
+
+        assertThat(seats).isEqualTo(LIMIT);
+        assertThat(confirmed).isEqualTo(LIMIT);
+    }
+
+    // все задачи стартуют одновременно; любое исключение, кроме ParticipantLimitException, валит тест
+    private Outcome race(List<Long> requesterIds,
+                         Function<Long, Callable<Void>> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger limitExceeded = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Long requesterId : requesterIds) {
+                Callable<Void> call = task.apply(requesterId);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        call.call();
+                        succeeded.incrementAndGet();
+                    } catch (ParticipantLimitException e) {
+                        limitExceeded.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return new Outcome(succeeded.get(), limitExceeded.get());
+    }
+
+    private List<Long> requesterIds() {
+        return userIds.subList(1, userIds.size());
+    }
+
+    private Long user(String name) {
+        Long id = jdbcTemplate.queryForObject("INSERT INTO users (name, email) VALUES (?, ?) RETURNING id",
+                Long.class, name, name + "@example.com");
+        userIds.add(id);
+        return id;
+    }
+
+    private Long event(boolean requestModeration) {
+        return jdbcTemplate.queryForObject("INSERT INTO events (annotation, category_id, description, event_date, " +
+                        "paid, participant_limit, request_moderation, title, initiator_id, created_on, published_on, " +
+                        "state) VALUES ('annotation', ?, 'description', ?, false, ?, ?, 'title', ?, ?, ?, 'PUBLISHED') " +
+                        "RETURNING id",
+                Long.class, categoryId, Timestamp.valueOf(LocalDateTime.now().plusDays(10)), LIMIT,
+                requestModeration, initiatorId, Timestamp.valueOf(LocalDateTime.now()),
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    private record Outcome(int succeeded, int limitExceeded) {
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.exception;
+
+public class HitQueueOverflowException extends RuntimeException {
+    public HitQueueOverflowException(String message) {
+        super(message);
+    }
+}
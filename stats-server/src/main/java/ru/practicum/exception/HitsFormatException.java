@@ -0,0 +1,7 @@
+package ru.practicum.exception;
+
+public class HitsFormatException extends RuntimeException {
+    public HitsFormatException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,26 @@
+package ru.practicum.exception;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+@Slf4j
+public class StatsExceptionHandler {
+
+    @ExceptionHandler(HitQueueOverflowException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String handleHitQueueOverflowException(HitQueueOverflowException ex) {
+        log.warn("Hit rejected: {}", ex.getMessage());
+        return ex.getMessage();
+    }
+
+    @ExceptionHandler(HitsFormatException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleHitsFormatException(HitsFormatException ex) {
+        log.warn("Malformed hits body: {}", ex.getMessage());
+        return ex.getMessage();
+    }
+}
@@ -0,0 +1,45 @@
+package ru.practicum.hit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// granularity == null -> хвост диапазона, который читается из сырых hits
+public record BucketRange(RollupGranularity granularity, LocalDateTime from, LocalDateTime to) {
+
+    public boolean isRaw() {
+        return granularity == null;
+    }
+
+    // [from, to) покрывается самыми крупными целыми бакетами, мелкие остаются только на краях
+    public static List<BucketRange> plan(LocalDateTime from, LocalDateTime to) {
+        List<BucketRange> ranges = new ArrayList<>();
+        plan(from, to, 0, ranges);
+        return ranges;
+    }
+
+    private static void plan(LocalDateTime from, LocalDateTime to, int level, List<BucketRange> ranges) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+
+        RollupGranularity[] levels = RollupGranularity.values();
+        if (level == levels.length) {
+            ranges.add(new BucketRange(null, from, to));
+            return;
+        }
+
+        RollupGranularity granularity = levels[level];
+        LocalDateTime first = granularity.ceil(from);
+        LocalDateTime last = granularity.floor(to);
+
+        if (!first.isBefore(last)) {
+            plan(from, to, level + 1, ranges);
+            return;
+        }
+
+        ranges.add(new BucketRange(granularity, first, last));
+        plan(from, first, level + 1, ranges);
+        plan(last, to, level + 1, ranges);
+    }
+}
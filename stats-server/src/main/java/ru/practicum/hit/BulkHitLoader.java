@@ -0,0 +1,162 @@
+package ru.practicum.hit;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import ru.practicum.exception.HitsFormatException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@Slf4j
+public class BulkHitLoader {
+    private final HitBatchWriter hitBatchWriter;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    public BulkHitLoader(HitBatchWriter hitBatchWriter,
+                         ObjectMapper objectMapper,
+                         @Value("${stats.ingest.batch-size:500}") int batchSize) {
+        this.hitBatchWriter = hitBatchWriter;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    // JSON-массив читаем потоково, по одному элементу, не собирая весь список в памяти
+    public HitsBulkResult loadArray(InputStream body) throws IOException {
+        BatchAccumulator accumulator = new BatchAccumulator();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new HitsFormatException("Request body must be a JSON array of hits");
+            }
+
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new HitsFormatException("Unexpected end of hits array");
+                }
+                accumulator.add(toHit(objectMapper.readTree(parser)));
+            }
+        } catch (JsonProcessingException e) {
+            accumulator.flush();
+            throw new HitsFormatException("Malformed hits array after " + accumulator.accepted +
+                    " accepted hits: " + e.getOriginalMessage());
+        }
+
+        return accumulator.finish();
+    }
+
+    // NDJSON: одна запись на строку, битая строка отбраковывается, не прерывая поток
+    public HitsBulkResult loadNdjson(InputStream body) throws IOException {
+        BatchAccumulator accumulator = new BatchAccumulator();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            Hit hit;
+            try {
+                hit = toHit(objectMapper.readTree(line));
+            } catch (JsonProcessingException e) {
+                hit = null;
+            }
+            accumulator.add(hit);
+        }
+
+        return accumulator.finish();
+    }
+
+    private Hit toHit(JsonNode node) {
+        NewHitRequest request;
+        try {
+            request = objectMapper.treeToValue(node, NewHitRequest.class);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            return null;
+        }
+
+        if (request == null
+                || isBlank(request.getApp())
+                || isBlank(request.getUri())
+                || isBlank(request.getIp())
+                || request.getTimestamp() == null) {
+            return null;
+        }
+        return StatsMapper.newHitToHit(request);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private class BatchAccumulator {
+        private final List<Hit> pending = new ArrayList<>(batchSize);
+        private final List<HitBatchResult> batches = new ArrayList<>();
+        private int rejectedInBatch;
+        private long accepted;
+        private long rejected;
+
+        void add(Hit hit) {
+            if (hit == null) {
+                rejectedInBatch++;
+            } else {
+                pending.add(hit);
+            }
+
+            if (pending.size() + rejectedInBatch >= batchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (pending.isEmpty() && rejectedInBatch == 0) {
+                return;
+            }
+
+            int batchAccepted = pending.size();
+            int batchRejected = rejectedInBatch;
+            try {
+                hitBatchWriter.write(pending);
+            } catch (DataAccessException e) {
+                log.error("Failed to write batch {} of {} hits", batches.size() + 1, pending.size(), e);
+                batchRejected += batchAccepted;
+                batchAccepted = 0;
+            }
+
+            batches.add(HitBatchResult.builder()
+                    .batch(batches.size() + 1)
+                    .accepted(batchAccepted)
+                    .rejected(batchRejected)
+                    .build());
+            accepted += batchAccepted;
+            rejected += batchRejected;
+
+            pending.clear();
+            rejectedInBatch = 0;
+        }
+
+        HitsBulkResult finish() {
+            flush();
+            log.info("Bulk hits loaded: accepted {}, rejected {}, batches {}", accepted, rejected, batches.size());
+            return HitsBulkResult.builder()
+                    .accepted(accepted)
+                    .rejected(rejected)
+                    .batches(batches)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ru.practicum.hit;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+// писать можно только после того, как у hits появились секции
+@Component
+@DependsOn("hitPartitionManager")
+@RequiredArgsConstructor
+@Slf4j
+public class HitBatchWriter {
+    private static final String INSERT_HIT = "INSERT INTO hits (app, uri, ip, timestamp) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final HitRollupStore hitRollupStore;
+    private final HitSketchStore hitSketchStore;
+    private final HotWindowStats hotWindowStats;
+
+    // один INSERT на пачку: с reWriteBatchedInserts драйвер склеивает её в multi-row VALUES
+    @Transactional
+    public void write(List<Hit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_HIT, hits, hits.size(), (ps, hit) -> {
+            ps.setString(1, hit.getApp());
+            ps.setString(2, hit.getUri());
+            ps.setString(3, hit.getIp());
+            ps.setTimestamp(4, Timestamp.valueOf(hit.getTimestamp()));
+        });
+        hitRollupStore.increment(hits);
+        hitSketchStore.add(hits);
+
+        // окно в памяти видит пачку только после коммита, откат не оставит в нем лишних хитов
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                hotWindowStats.add(hits);
+            }
+        });
+        log.debug("Inserted batch of {} hits", hits.size());
+    }
+}
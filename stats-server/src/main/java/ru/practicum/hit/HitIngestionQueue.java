@@ -0,0 +1,145 @@
+package ru.practicum.hit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.exception.HitQueueOverflowException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@Slf4j
+public class HitIngestionQueue {
+    private final HitBatchWriter hitBatchWriter;
+    private final BlockingQueue<Hit> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+
+    private final Counter acceptedCounter;
+    private final Counter rejectedCounter;
+    private final Counter failedCounter;
+    private final Timer flushTimer;
+
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    public HitIngestionQueue(HitBatchWriter hitBatchWriter,
+                             MeterRegistry meterRegistry,
+                             @Value("${stats.ingest.capacity:10000}") int capacity,
+                             @Value("${stats.ingest.batch-size:500}") int batchSize,
+                             @Value("${stats.ingest.flush-interval-ms:200}") long flushIntervalMs,
+                             @Value("${stats.ingest.offer-timeout-ms:50}") long offerTimeoutMs) {
+        this.hitBatchWriter = hitBatchWriter;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+
+        Gauge.builder("stats.ingest.queue.depth", queue, BlockingQueue::size)
+                .description("Hits waiting to be flushed to the database")
+                .register(meterRegistry);
+        this.acceptedCounter = meterRegistry.counter("stats.ingest.hits", "result", "accepted");
+        this.rejectedCounter = meterRegistry.counter("stats.ingest.hits", "result", "rejected");
+        this.failedCounter = meterRegistry.counter("stats.ingest.hits", "result", "failed");
+        this.flushTimer = Timer.builder("stats.ingest.flush")
+                .description("Latency of a single batch insert")
+                .register(meterRegistry);
+
+        this.flusher = new Thread(this::runFlusher, "hit-flusher");
+        this.flusher.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher.start();
+        log.info("Hit ingestion started: capacity {}, batch size {}, flush interval {} ms",
+                queue.remainingCapacity(), batchSize, flushIntervalMs);
+    }
+
+    // очередь заполнена дольше offerTimeout -> отказываем, чтобы клиент притормозил
+    public void submit(Hit hit) {
+        if (!running) {
+            rejectedCounter.increment();
+            throw new HitQueueOverflowException("Stats server is shutting down, hit was not accepted");
+        }
+
+        try {
+            if (!queue.offer(hit, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                rejectedCounter.increment();
+                throw new HitQueueOverflowException("Hit queue is full, try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejectedCounter.increment();
+            throw new HitQueueOverflowException("Interrupted while waiting for hit queue");
+        }
+        acceptedCounter.increment();
+    }
+
+    public int depth() {
+        return queue.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        log.info("Draining hit queue, {} hits pending", queue.size());
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    private void runFlusher() {
+        List<Hit> batch = new ArrayList<>(batchSize);
+        long deadline = 0;
+
+        while (running || !queue.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    Hit first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    deadline = System.currentTimeMillis() + flushIntervalMs;
+                }
+
+                queue.drainTo(batch, batchSize - batch.size());
+
+                long wait = deadline - System.currentTimeMillis();
+                if (batch.size() >= batchSize || wait <= 0 || !running) {
+                    flush(batch);
+                    continue;
+                }
+
+                Hit next = queue.poll(wait, TimeUnit.MILLISECONDS);
+                if (next != null) {
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+        }
+        log.info("Hit flusher stopped");
+    }
+
+    private void flush(List<Hit> batch) {
+        try {
+            flushTimer.record(() -> hitBatchWriter.write(batch));
+        } catch (Exception e) {
+            failedCounter.increment(batch.size());
+            log.error("Failed to flush {} hits", batch.size(), e);
+        } finally {
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package ru.practicum.hit;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// hits секционирована по месяцам: секции заводятся заранее, старые удаляются целиком вместо DELETE
+@Component
+@Slf4j
+public class HitPartitionManager {
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'hits_y'yyyy'm'MM");
+    private static final Pattern PARTITION_NAME_PATTERN = Pattern.compile("hits_y(\\d{4})m(\\d{2})");
+    private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public HitPartitionManager(JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${stats.partitions.months-ahead:3}") int monthsAhead,
+                               @Value("${stats.partitions.retention-months:0}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @PostConstruct
+    public void init() {
+        convertLegacyTable();
+        createDefaultPartition();
+        createIndexes();
+        maintain();
+    }
+
+    @Scheduled(cron = "${stats.partitions.cron:0 0 3 * * *}")
+    public void maintain() {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            try {
+                createPartition(month);
+            } catch (DataAccessException e) {
+                log.error("Failed to create hits partition for {}", month, e);
+            }
+        }
+
+        if (retentionMonths > 0) {
+            dropPartitionsBefore(current.minusMonths(retentionMonths));
+        }
+    }
+
+    // с retention сырые хиты раньше начала самого старого хранимого месяца удалены вместе с секциями
+    public boolean isRawDataExpired(LocalDateTime start) {
+        return retentionMonths > 0
+                && start.isBefore(YearMonth.now().minusMonths(retentionMonths).atDay(1).atStartOfDay());
+    }
+
+    // базы, созданные до секционирования, переводятся один раз: старая таблица копируется в секции и удаляется
+    private void convertLegacyTable() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("LOCK TABLE hits IN ACCESS EXCLUSIVE MODE");
+
+            String kind = jdbcTemplate.queryForObject(
+                    "SELECT relkind::text FROM pg_class WHERE oid = 'hits'::regclass", String.class);
+            if ("p".equals(kind)) {
+                return;
+            }
+
+            log.info("Converting hits into a partitioned table");
+            jdbcTemplate.execute("ALTER TABLE hits RENAME TO hits_legacy");
+            jdbcTemplate.execute("CREATE TABLE hits (LIKE hits_legacy INCLUDING DEFAULTS) PARTITION BY RANGE (timestamp)");
+            jdbcTemplate.execute("ALTER TABLE hits ALTER COLUMN id SET DEFAULT nextval('hits_seq')");
+            jdbcTemplate.execute("ALTER TABLE hits ADD CONSTRAINT hits_pk PRIMARY KEY (id, timestamp)");
+            createDefaultPartition();
+
+            Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM hits_legacy", Timestamp.class);
+            Timestamp newest = jdbcTemplate.queryForObject("SELECT MAX(timestamp) FROM hits_legacy", Timestamp.class);
+            if (oldest != null && newest != null) {
+                YearMonth last = YearMonth.from(newest.toLocalDateTime());
+                for (YearMonth month = YearMonth.from(oldest.toLocalDateTime());
+                     !month.isAfter(last); month = month.plusMonths(1)) {
+                    createPartition(month);
+                }
+            }
+
+            int copied = jdbcTemplate.update("INSERT INTO hits (id, app, uri, ip, timestamp) " +
+                    "SELECT id, app, uri, ip, timestamp FROM hits_legacy");
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM hits_legacy", Long.class);
+            if (maxId != null) {
+                jdbcTemplate.queryForObject("SELECT setval('hits_seq', ?)", Long.class, maxId);
+            }
+            jdbcTemplate.execute("DROP TABLE hits_legacy");
+            log.info("Moved {} hits into partitions", copied);
+        });
+    }
+
+    // сюда попадают хиты вне заведенных секций (например, с временем далеко в прошлом)
+    private void createDefaultPartition() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS hits_default PARTITION OF hits DEFAULT");
+    }
+
+    // покрывающие индексы: диапазон по времени и фильтр по uri читаются без обращения к строкам
+    private void createIndexes() {
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS hits_timestamp_uri_idx " +
+                "ON hits (timestamp, uri) INCLUDE (app, ip)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS hits_uri_timestamp_idx " +
+                "ON hits (uri, timestamp) INCLUDE (app, ip)");
+    }
+
+    // строки месяца, успевшие попасть в секцию по умолчанию, переносятся в новую секцию до ее подключения
+    private void createPartition(YearMonth month) {
+        String name = month.format(PARTITION_NAME);
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("LOCK TABLE hits_default IN ACCESS EXCLUSIVE MODE");
+
+            Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name);
+            if (Boolean.TRUE.equals(exists)) {
+                return;
+            }
+
+            jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE hits INCLUDING DEFAULTS)");
+            int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM hits_default " +
+                            "WHERE timestamp >= ? AND timestamp < ? RETURNING *) " +
+                            "INSERT INTO " + name + " SELECT * FROM moved",
+                    Timestamp.valueOf(from), Timestamp.valueOf(to));
+            jdbcTemplate.execute("ALTER TABLE hits ATTACH PARTITION " + name +
+                    " FOR VALUES FROM ('" + from.format(BOUND) + "') TO ('" + to.format(BOUND) + "')");
+            log.info("Created hits partition {} ({} hits moved from default)", name, moved);
+        });
+    }
+
+    // роллапы и скетчи не трогаем: агрегаты по удаленным месяцам остаются доступны
+    private void dropPartitionsBefore(YearMonth oldestKept) {
+        List<String> partitions = jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'hits'::regclass", String.class);
+
+        for (String name : partitions) {
+            Matcher matcher = PARTITION_NAME_PATTERN.matcher(name);
+            if (!matcher.matches()) {
+                continue;
+            }
+
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            if (month.isBefore(oldestKept)) {
+                try {
+                    jdbcTemplate.execute("DROP TABLE " + name);
+                    log.info("Dropped expired hits partition {}", name);
+                } catch (DataAccessException e) {
+                    log.error("Failed to drop hits partition {}", name, e);
+                }
+            }
+        }
+    }
+}
@@ -1,51 +1,6 @@
 package ru.practicum.hit;
 
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 
-import java.time.LocalDateTime;
-import java.util.List;
-
-public interface HitRepository extends JpaRepository<Hit, Long> {
-
-    // === Все хиты (unique = false) ===
-
-    @Query("SELECT h.app, h.uri, COUNT(h) " +
-            "FROM Hit h " +
-            "WHERE h.timestamp BETWEEN :start AND :end " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY COUNT(h) DESC")
-    List<Object[]> findAllStatsWithoutUris(@Param("start") LocalDateTime start,
-                                           @Param("end") LocalDateTime end);
-
-    @Query("SELECT h.app, h.uri, COUNT(h) " +
-            "FROM Hit h " +
-            "WHERE h.timestamp BETWEEN :start AND :end " +
-            "AND h.uri IN :uris " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY COUNT(h) DESC")
-    List<Object[]> findAllStatsWithUris(@Param("start") LocalDateTime start,
-                                        @Param("end") LocalDateTime end,
-                                        @Param("uris") List<String> uris);
-
-    // === Уникальные хиты (unique = true) ===
-
-    @Query("SELECT h.app, h.uri, COUNT(DISTINCT h.ip) " +
-            "FROM Hit h " +
-            "WHERE h.timestamp BETWEEN :start AND :end " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY COUNT(DISTINCT h.ip) DESC")
-    List<Object[]> findUniqueStatsWithoutUris(@Param("start") LocalDateTime start,
-                                              @Param("end") LocalDateTime end);
-
-    @Query("SELECT h.app, h.uri, COUNT(DISTINCT h.ip) " +
-            "FROM Hit h " +
-            "WHERE h.timestamp BETWEEN :start AND :end " +
-            "AND h.uri IN :uris " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY COUNT(DISTINCT h.ip) DESC")
-    List<Object[]> findUniqueStatsWithUris(@Param("start") LocalDateTime start,
-                                           @Param("end") LocalDateTime end,
-                                           @Param("uris") List<String> uris);
-}
\ No newline at end of file
+public interface HitRepository extends JpaRepository<Hit, Long>, HitStatsRepository {
+}
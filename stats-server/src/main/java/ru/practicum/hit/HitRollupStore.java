@@ -0,0 +1,168 @@
+package ru.practicum.hit;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+@Repository
+@Slf4j
+public class HitRollupStore {
+    private static final String UPSERT_ROLLUP = "INSERT INTO hit_rollups (granularity, bucket_start, app, uri, hits) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (granularity, bucket_start, app, uri) " +
+            "DO UPDATE SET hits = hit_rollups.hits + EXCLUDED.hits";
+
+    private static final String BACKFILL_ROLLUP = "INSERT INTO hit_rollups (granularity, bucket_start, app, uri, hits) " +
+            "SELECT ?, date_trunc(?, h.timestamp), h.app, h.uri, COUNT(*) " +
+            "FROM hits h " +
+            "GROUP BY 2, 3, 4";
+
+    private static final int STREAM_FETCH_SIZE = 1_000;
+
+    private static final Comparator<RollupKey> KEY_ORDER = Comparator
+            .comparing(RollupKey::granularity)
+            .thenComparing(RollupKey::bucketStart)
+            .thenComparing(RollupKey::app)
+            .thenComparing(RollupKey::uri);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+
+    public HitRollupStore(JdbcTemplate jdbcTemplate,
+                          NamedParameterJdbcTemplate namedJdbcTemplate,
+                          TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(STREAM_FETCH_SIZE);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streaming);
+    }
+
+    // хиты, записанные до появления роллапов, досчитываем один раз, до старта приема новых
+    @PostConstruct
+    public void backfillIfNeeded() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("LOCK TABLE hits IN SHARE ROW EXCLUSIVE MODE");
+
+            Integer built = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM hit_rollup_state WHERE id = 1", Integer.class);
+            if (built != null && built > 0) {
+                return;
+            }
+
+            log.info("Building hit rollups from raw hits");
+            jdbcTemplate.update("DELETE FROM hit_rollups");
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                jdbcTemplate.update(BACKFILL_ROLLUP, granularity.name(), granularity.getDateTruncField());
+            }
+            jdbcTemplate.update("INSERT INTO hit_rollup_state (id, built_at) VALUES (1, ?)",
+                    Timestamp.valueOf(LocalDateTime.now()));
+        });
+    }
+
+    // вызывается в транзакции вставки сырых хитов, поэтому роллапы не расходятся с hits
+    public void increment(List<Hit> hits) {
+        Map<RollupKey, Long> deltas = new HashMap<>();
+        for (Hit hit : hits) {
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                RollupKey key = new RollupKey(granularity, granularity.floor(hit.getTimestamp()),
+                        hit.getApp(), hit.getUri());
+                deltas.merge(key, 1L, Long::sum);
+            }
+        }
+
+        // одинаковый порядок ключей у параллельных транзакций исключает взаимные блокировки
+        List<Map.Entry<RollupKey, Long>> rows = new ArrayList<>(deltas.entrySet());
+        rows.sort(Map.Entry.comparingByKey(KEY_ORDER));
+
+        jdbcTemplate.batchUpdate(UPSERT_ROLLUP, rows, rows.size(), (ps, row) -> {
+            RollupKey key = row.getKey();
+            ps.setString(1, key.granularity().name());
+            ps.setTimestamp(2, Timestamp.valueOf(key.bucketStart()));
+            ps.setString(3, key.app());
+            ps.setString(4, key.uri());
+            ps.setLong(5, row.getValue());
+        });
+    }
+
+    public List<ViewStatsDto> findStats(LocalDateTime start, LocalDateTime end, List<String> uris, Integer limit) {
+        List<ViewStatsDto> stats = new ArrayList<>();
+        streamStats(start, end, uris, limit, stats::add);
+        return stats;
+    }
+
+    // [start, end] покрывается самыми крупными целыми бакетами, сырые хиты читаются только на краях;
+    // строки отдаются по мере чтения курсора, с limit база останавливается на top-N
+    public void streamStats(LocalDateTime start,
+                            LocalDateTime end,
+                            List<String> uris,
+                            Integer limit,
+                            Consumer<ViewStatsDto> sink) {
+        List<BucketRange> ranges = BucketRange.plan(start, end.plus(1, ChronoUnit.MICROS));
+        if (ranges.isEmpty()) {
+            return;
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String uriFilter = "";
+        if (uris != null && !uris.isEmpty()) {
+            params.addValue("uris", uris);
+            uriFilter = " AND uri IN (:uris)";
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT app, uri, SUM(hits) AS hits FROM (");
+        for (int i = 0; i < ranges.size(); i++) {
+            BucketRange range = ranges.get(i);
+            params.addValue("from" + i, Timestamp.valueOf(range.from()));
+            params.addValue("to" + i, Timestamp.valueOf(range.to()));
+
+            if (i > 0) {
+                sql.append(" UNION ALL ");
+            }
+            if (range.isRaw()) {
+                sql.append("SELECT app, uri, COUNT(*) AS hits FROM hits ")
+                        .append("WHERE timestamp >= :from").append(i)
+                        .append(" AND timestamp < :to").append(i).append(uriFilter)
+                        .append(" GROUP BY app, uri");
+            } else {
+                params.addValue("granularity" + i, range.granularity().name());
+                sql.append("SELECT app, uri, hits FROM hit_rollups ")
+                        .append("WHERE granularity = :granularity").append(i)
+                        .append(" AND bucket_start >= :from").append(i)
+                        .append(" AND bucket_start < :to").append(i).append(uriFilter);
+            }
+        }
+        sql.append(") s GROUP BY app, uri ORDER BY hits DESC");
+        if (limit != null) {
+            params.addValue("limit", limit);
+            sql.append(" LIMIT :limit");
+        }
+
+        // курсор postgres работает только при выключенном autocommit
+        transactionTemplate.executeWithoutResult(status ->
+                streamingJdbcTemplate.query(sql.toString(), params, rs -> {
+                    sink.accept(new ViewStatsDto(rs.getString("app"), rs.getString("uri"), rs.getLong("hits")));
+                }));
+    }
+
+    private record RollupKey(RollupGranularity granularity, LocalDateTime bucketStart, String app, String uri) {
+    }
+}
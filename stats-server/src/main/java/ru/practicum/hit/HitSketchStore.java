@@ -0,0 +1,228 @@
+package ru.practicum.hit;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// HLL-скетч ip хранится одной строкой bytea на бакет (разреженно, пока ip мало, см. HyperLogLog.encode).
+// Пачка сначала сливается в памяти, затем строки затронутых бакетов заводятся или блокируются одним
+// INSERT ... RETURNING, регистры сливаются поэлементным максимумом в памяти, и одним batch UPDATE
+// перезаписываются только изменившиеся строки
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class HitSketchStore {
+    // для существующей строки пустой DO UPDATE только берет блокировку и возвращает текущие регистры
+    private static final String LOCK_SKETCHES = "INSERT INTO hit_bucket_sketches " +
+            "(granularity, bucket_start, app, uri, registers) " +
+            "SELECT k.granularity, k.bucket_start, k.app, k.uri, ''::bytea " +
+            "FROM UNNEST(?::varchar[], ?::timestamp[], ?::varchar[], ?::varchar[]) " +
+            "WITH ORDINALITY AS k(granularity, bucket_start, app, uri, n) " +
+            "ORDER BY k.n " +
+            "ON CONFLICT (granularity, bucket_start, app, uri) " +
+            "DO UPDATE SET registers = hit_bucket_sketches.registers " +
+            "RETURNING granularity, bucket_start, app, uri, registers";
+
+    private static final String UPDATE_SKETCH = "UPDATE hit_bucket_sketches SET registers = ? " +
+            "WHERE granularity = ? AND bucket_start = ? AND app = ? AND uri = ?";
+
+    // скетчей по 4 КБ в памяти на одну порцию пересчета
+    private static final int BACKFILL_CHUNK = 1_000;
+    private static final int BACKFILL_FETCH_SIZE = 10_000;
+
+    private static final Comparator<SketchKey> KEY_ORDER = Comparator
+            .comparing(SketchKey::granularity)
+            .thenComparing(SketchKey::bucketStart)
+            .thenComparing(SketchKey::app)
+            .thenComparing(SketchKey::uri);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // все гранулярности считаются за один проход по сырым хитам, порциями
+    @PostConstruct
+    public void backfillIfNeeded() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("LOCK TABLE hits IN SHARE ROW EXCLUSIVE MODE");
+
+            Integer built = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM hit_rollup_state WHERE id = 3", Integer.class);
+            if (built != null && built > 0) {
+                return;
+            }
+
+            log.info("Building unique visitor sketches from raw hits");
+            jdbcTemplate.update("DELETE FROM hit_bucket_sketches");
+
+            Map<SketchKey, byte[]> chunk = new HashMap<>();
+            JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+            streaming.setFetchSize(BACKFILL_FETCH_SIZE);
+            streaming.query("SELECT DISTINCT app, uri, date_trunc('minute', timestamp) AS bucket, ip FROM hits " +
+                            "ORDER BY app, uri, bucket",
+                    rs -> {
+                        add(chunk, rs.getString("app"), rs.getString("uri"),
+                                rs.getTimestamp("bucket").toLocalDateTime(), rs.getString("ip"));
+                        if (chunk.size() >= BACKFILL_CHUNK) {
+                            merge(chunk);
+                            chunk.clear();
+                        }
+                    });
+            merge(chunk);
+
+            jdbcTemplate.update("INSERT INTO hit_rollup_state (id, built_at) VALUES (3, ?)",
+                    Timestamp.valueOf(LocalDateTime.now()));
+        });
+    }
+
+    // вызывается в транзакции вставки сырых хитов вместе с роллапами
+    public void add(List<Hit> hits) {
+        Map<SketchKey, byte[]> sketches = new HashMap<>();
+        for (Hit hit : hits) {
+            add(sketches, hit.getApp(), hit.getUri(), hit.getTimestamp(), hit.getIp());
+        }
+        merge(sketches);
+    }
+
+    // скетчи целых бакетов сливаются в памяти, ip с краев диапазона добавляются в них же
+    public List<ViewStatsDto> findUniqueStats(LocalDateTime start,
+                                             LocalDateTime end,
+                                             List<String> uris,
+                                             Integer limit) {
+        List<BucketRange> ranges = BucketRange.plan(start, end.plus(1, ChronoUnit.MICROS));
+
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String uriFilter = "";
+        if (uris != null && !uris.isEmpty()) {
+            params.addValue("uris", uris);
+            uriFilter = " AND uri IN (:uris)";
+        }
+
+        List<String> bucketConditions = new ArrayList<>();
+        List<String> rawConditions = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            BucketRange range = ranges.get(i);
+            params.addValue("from" + i, Timestamp.valueOf(range.from()));
+            params.addValue("to" + i, Timestamp.valueOf(range.to()));
+            if (range.isRaw()) {
+                rawConditions.add("(timestamp >= :from" + i + " AND timestamp < :to" + i + ")");
+            } else {
+                params.addValue("granularity" + i, range.granularity().name());
+                bucketConditions.add("(granularity = :granularity" + i +
+                        " AND bucket_start >= :from" + i + " AND bucket_start < :to" + i + ")");
+            }
+        }
+
+        Map<AppUri, byte[]> sketches = new HashMap<>();
+
+        if (!bucketConditions.isEmpty()) {
+            namedJdbcTemplate.query("SELECT app, uri, registers FROM hit_bucket_sketches " +
+                            "WHERE (" + String.join(" OR ", bucketConditions) + ")" + uriFilter,
+                    params,
+                    rs -> {
+                        byte[] registers = sketches.computeIfAbsent(
+                                new AppUri(rs.getString("app"), rs.getString("uri")),
+                                key -> new byte[HyperLogLog.REGISTERS]);
+                        HyperLogLog.merge(registers, rs.getBytes("registers"));
+                    });
+        }
+
+        if (!rawConditions.isEmpty()) {
+            namedJdbcTemplate.query("SELECT DISTINCT app, uri, ip FROM hits " +
+                            "WHERE (" + String.join(" OR ", rawConditions) + ")" + uriFilter,
+                    params,
+                    rs -> {
+                        byte[] registers = sketches.computeIfAbsent(
+                                new AppUri(rs.getString("app"), rs.getString("uri")),
+                                key -> new byte[HyperLogLog.REGISTERS]);
+                        HyperLogLog.add(registers, rs.getString("ip"));
+                    });
+        }
+
+        double errorBound = HyperLogLog.relativeError();
+        List<ViewStatsDto> stats = new ArrayList<>(sketches.size());
+        sketches.forEach((key, registers) -> stats.add(
+                new ViewStatsDto(key.app(), key.uri(), HyperLogLog.estimate(registers), errorBound)));
+        stats.sort(Comparator.comparing(ViewStatsDto::getHits).reversed());
+        return limit != null && stats.size() > limit ? stats.subList(0, limit) : stats;
+    }
+
+    private static void add(Map<SketchKey, byte[]> sketches, String app, String uri, LocalDateTime time, String ip) {
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            SketchKey key = new SketchKey(granularity, granularity.floor(time), app, uri);
+            HyperLogLog.add(sketches.computeIfAbsent(key, k -> new byte[HyperLogLog.REGISTERS]), ip);
+        }
+    }
+
+    private void merge(Map<SketchKey, byte[]> sketches) {
+        if (sketches.isEmpty()) {
+            return;
+        }
+
+        // одинаковый порядок ключей у параллельных транзакций исключает взаимные блокировки
+        List<SketchKey> keys = new ArrayList<>(sketches.keySet());
+        keys.sort(KEY_ORDER);
+
+        Map<SketchKey, byte[]> changed = new HashMap<>();
+        jdbcTemplate.query(connection -> lockSketches(connection, keys), rs -> {
+            SketchKey key = new SketchKey(RollupGranularity.valueOf(rs.getString("granularity")),
+                    rs.getTimestamp("bucket_start").toLocalDateTime(),
+                    rs.getString("app"), rs.getString("uri"));
+            byte[] stored = rs.getBytes("registers");
+            byte[] registers = sketches.get(key);
+            HyperLogLog.merge(registers, stored);
+            // повторные ip за час или день регистров не меняют: такую строку не переписываем
+            byte[] encoded = HyperLogLog.encode(registers);
+            if (!Arrays.equals(encoded, stored)) {
+                changed.put(key, encoded);
+            }
+        });
+
+        List<SketchKey> updates = keys.stream().filter(changed::containsKey).toList();
+        if (updates.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_SKETCH, updates, updates.size(), (ps, key) -> {
+            ps.setBytes(1, changed.get(key));
+            ps.setString(2, key.granularity().name());
+            ps.setTimestamp(3, Timestamp.valueOf(key.bucketStart()));
+            ps.setString(4, key.app());
+            ps.setString(5, key.uri());
+        });
+    }
+
+    private static PreparedStatement lockSketches(Connection connection, List<SketchKey> keys) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(LOCK_SKETCHES);
+        statement.setArray(1, connection.createArrayOf("varchar",
+                keys.stream().map(key -> key.granularity().name()).toArray()));
+        statement.setArray(2, connection.createArrayOf("timestamp",
+                keys.stream().map(key -> Timestamp.valueOf(key.bucketStart())).toArray()));
+        statement.setArray(3, connection.createArrayOf("varchar", keys.stream().map(SketchKey::app).toArray()));
+        statement.setArray(4, connection.createArrayOf("varchar", keys.stream().map(SketchKey::uri).toArray()));
+        return statement;
+    }
+
+    private record SketchKey(RollupGranularity granularity, LocalDateTime bucketStart, String app, String uri) {
+    }
+
+    private record AppUri(String app, String uri) {
+    }
+}
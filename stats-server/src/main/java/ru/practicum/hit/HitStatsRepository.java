@@ -0,0 +1,14 @@
+package ru.practicum.hit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface HitStatsRepository {
+
+    // вызывать только внутри транзакции: строки читаются курсором
+    Stream<ViewStatsDto> streamUniqueStats(LocalDateTime start,
+                                           LocalDateTime end,
+                                           List<String> uris,
+                                           Integer limit);
+}
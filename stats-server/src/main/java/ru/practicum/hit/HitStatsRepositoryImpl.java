@@ -0,0 +1,50 @@
+package ru.practicum.hit;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+// две постоянные JPQL-строки вместо пары почти одинаковых методов или CriteriaQuery на каждый вызов:
+// разобранный запрос Hibernate берет из кеша планов по строке, строки сразу конструируются
+// в ViewStatsDto, без Object[] и приведения типов по ячейкам
+public class HitStatsRepositoryImpl implements HitStatsRepository {
+    private static final int FETCH_SIZE = 1_000;
+
+    private static final String UNIQUE_STATS = "SELECT new ru.practicum.hit.ViewStatsDto(h.app, h.uri, " +
+            "COUNT(DISTINCT h.ip)) " +
+            "FROM Hit h " +
+            "WHERE h.timestamp BETWEEN :start AND :end%s " +
+            "GROUP BY h.app, h.uri " +
+            "ORDER BY COUNT(DISTINCT h.ip) DESC";
+    private static final String UNIQUE_STATS_ALL = String.format(UNIQUE_STATS, "");
+    private static final String UNIQUE_STATS_BY_URIS = String.format(UNIQUE_STATS, " AND h.uri IN :uris");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Stream<ViewStatsDto> streamUniqueStats(LocalDateTime start,
+                                                  LocalDateTime end,
+                                                  List<String> uris,
+                                                  Integer limit) {
+        boolean byUris = uris != null && !uris.isEmpty();
+        TypedQuery<ViewStatsDto> query = entityManager
+                .createQuery(byUris ? UNIQUE_STATS_BY_URIS : UNIQUE_STATS_ALL, ViewStatsDto.class)
+                .setParameter("start", start)
+                .setParameter("end", end)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        if (byUris) {
+            query.setParameter("uris", uris);
+        }
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+        return query.getResultStream();
+    }
+}
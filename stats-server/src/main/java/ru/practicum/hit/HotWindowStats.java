@@ -0,0 +1,428 @@
+package ru.practicum.hit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Последние N часов хитов в памяти: на каждую минуту и интернированный app+uri - счетчик хитов
+// и HLL-скетч ip (разреженный, пока ip мало). Отдельные хиты не хранятся, поэтому неполные минуты
+// на краях диапазона дочитываются из hits, а уникальные в окне всегда приблизительные.
+// uri, не попавший ни в одну минуту окна, забывается.
+// Рассчитан на один экземпляр stats-server: хиты других экземпляров сюда не попадают.
+@Component
+@Slf4j
+public class HotWindowStats {
+    // минуты с запасом под хиты с часами клиента, убежавшими вперед
+    private static final int FUTURE_SLACK_MINUTES = 60;
+    private static final int LOAD_FETCH_SIZE = 10_000;
+    private static final long MICROS_PER_MINUTE = 60_000_000L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int windowMinutes;
+    private final MinuteBucket[] ring;
+
+    // канонический AppUri и число минут окна, в которых он встречается
+    private final Map<AppUri, InternedUri> internedUris = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // хит слишком далеко в будущем не попал в окно: запросы, задевающие эту минуту, идут в БД
+    private volatile long droppedFutureMinute = Long.MAX_VALUE;
+
+    private final Counter servedCounter;
+    private final Counter missedCounter;
+
+    public HotWindowStats(JdbcTemplate jdbcTemplate,
+                          NamedParameterJdbcTemplate namedJdbcTemplate,
+                          TransactionTemplate transactionTemplate,
+                          MeterRegistry meterRegistry,
+                          @Value("${stats.hot-window.enabled:true}") boolean enabled,
+                          @Value("${stats.hot-window.hours:6}") int hours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.windowMinutes = (int) TimeUnit.HOURS.toMinutes(hours);
+        this.ring = new MinuteBucket[windowMinutes + FUTURE_SLACK_MINUTES];
+        this.servedCounter = meterRegistry.counter("stats.hot-window.queries", "result", "served");
+        this.missedCounter = meterRegistry.counter("stats.hot-window.queries", "result", "missed");
+        meterRegistry.gauge("stats.hot-window.uris", this, HotWindowStats::internedCount);
+    }
+
+    // окно восстанавливается из hits до того, как HitBatchWriter начнет принимать новые пачки
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+
+        LocalDateTime from = toTime(windowStartMinute(currentMinute()));
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(LOAD_FETCH_SIZE);
+
+        List<Hit> chunk = new ArrayList<>(LOAD_FETCH_SIZE);
+        transactionTemplate.executeWithoutResult(status ->
+                streaming.query("SELECT app, uri, ip, timestamp FROM hits WHERE timestamp >= ?",
+                        rs -> {
+                            chunk.add(Hit.builder()
+                                    .app(rs.getString("app"))
+                                    .uri(rs.getString("uri"))
+                                    .ip(rs.getString("ip"))
+                                    .timestamp(rs.getTimestamp("timestamp").toLocalDateTime())
+                                    .build());
+                            if (chunk.size() >= LOAD_FETCH_SIZE) {
+                                add(chunk);
+                                chunk.clear();
+                            }
+                        },
+                        Timestamp.valueOf(from)));
+        add(chunk);
+
+        log.info("Hot window loaded: last {} minutes, {} uris", windowMinutes, internedCount());
+    }
+
+    // вызывается после коммита пачки, чтобы в памяти были только сохраненные хиты
+    public void add(Collection<Hit> hits) {
+        if (!enabled || hits.isEmpty()) {
+            return;
+        }
+
+        long now = currentMinute();
+        long oldest = windowStartMinute(now);
+        long newest = now + FUTURE_SLACK_MINUTES - 1;
+
+        lock.writeLock().lock();
+        try {
+            evictBefore(oldest);
+            for (Hit hit : hits) {
+                long minute = Math.floorDiv(toEpochMicros(hit.getTimestamp()), MICROS_PER_MINUTE);
+                if (minute < oldest) {
+                    continue;
+                }
+                if (minute > newest) {
+                    droppedFutureMinute = Math.min(droppedFutureMinute, minute);
+                    continue;
+                }
+
+                int slot = (int) Math.floorMod(minute, (long) ring.length);
+                MinuteBucket bucket = ring[slot];
+                if (bucket == null || bucket.minute != minute) {
+                    release(bucket);
+                    bucket = new MinuteBucket(minute);
+                    ring[slot] = bucket;
+                }
+
+                AppUri appUri = new AppUri(hit.getApp(), hit.getUri());
+                UriMinute counters = bucket.byUri.get(appUri);
+                if (counters == null) {
+                    counters = new UriMinute();
+                    bucket.byUri.put(intern(appUri), counters);
+                }
+                counters.add(hit.getIp());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean covers(LocalDateTime start, LocalDateTime end) {
+        boolean covered = enabled
+                && toEpochMicros(start) >= windowStartMinute(currentMinute()) * MICROS_PER_MINUTE
+                && Math.floorDiv(toEpochMicros(end), MICROS_PER_MINUTE) < droppedFutureMinute;
+        (covered ? servedCounter : missedCounter).increment();
+        return covered;
+    }
+
+    // целые минуты берутся из счетчиков и скетчей, неполные минуты на краях - из hits;
+    // уникальные оцениваются по HLL и возвращаются с errorBound
+    public List<ViewStatsDto> getStats(LocalDateTime start,
+                                       LocalDateTime end,
+                                       List<String> uris,
+                                       boolean unique,
+                                       Integer limit) {
+        long startMicros = toEpochMicros(start);
+        long endMicros = toEpochMicros(end);
+        long firstWhole = Math.floorDiv(startMicros + MICROS_PER_MINUTE - 1, MICROS_PER_MINUTE);
+        long lastWhole = Math.min(Math.floorDiv(endMicros + 1, MICROS_PER_MINUTE) - 1,
+                currentMinute() + FUTURE_SLACK_MINUTES - 1);
+
+        Map<AppUri, long[]> hits = new HashMap<>();
+        Map<AppUri, byte[]> sketches = new HashMap<>();
+
+        lock.readLock().lock();
+        try {
+            List<AppUri> candidates = candidates(uris);
+            for (long minute = firstWhole; minute <= lastWhole; minute++) {
+                MinuteBucket bucket = ring[(int) Math.floorMod(minute, (long) ring.length)];
+                if (bucket == null || bucket.minute != minute) {
+                    continue;
+                }
+
+                if (candidates == null) {
+                    bucket.byUri.forEach((appUri, counters) -> collect(appUri, counters, unique, hits, sketches));
+                } else {
+                    for (AppUri appUri : candidates) {
+                        UriMinute counters = bucket.byUri.get(appUri);
+                        if (counters != null) {
+                            collect(appUri, counters, unique, hits, sketches);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        addEdges(start, end, firstWhole, lastWhole, uris, unique, hits, sketches);
+
+        List<ViewStatsDto> stats = new ArrayList<>();
+        if (unique) {
+            double errorBound = HyperLogLog.relativeError();
+            sketches.forEach((appUri, registers) -> stats.add(new ViewStatsDto(appUri.app(), appUri.uri(),
+                    HyperLogLog.estimate(registers), errorBound)));
+        } else {
+            hits.forEach((appUri, count) -> stats.add(new ViewStatsDto(appUri.app(), appUri.uri(), count[0])));
+        }
+        stats.sort((a, b) -> Long.compare(b.getHits(), a.getHits()));
+        return limit != null && stats.size() > limit ? stats.subList(0, limit) : stats;
+    }
+
+    private static void collect(AppUri appUri,
+                                UriMinute counters,
+                                boolean unique,
+                                Map<AppUri, long[]> hits,
+                                Map<AppUri, byte[]> sketches) {
+        if (unique) {
+            counters.mergeInto(sketches.computeIfAbsent(appUri, key -> new byte[HyperLogLog.REGISTERS]));
+        } else {
+            hits.computeIfAbsent(appUri, key -> new long[1])[0] += counters.hits;
+        }
+    }
+
+    // неполные минуты: до первой целой и после последней целой; без целых минут - весь диапазон
+    private void addEdges(LocalDateTime start,
+                          LocalDateTime end,
+                          long firstWhole,
+                          long lastWhole,
+                          List<String> uris,
+                          boolean unique,
+                          Map<AppUri, long[]> hits,
+                          Map<AppUri, byte[]> sketches) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end));
+        List<String> conditions = new ArrayList<>();
+        if (firstWhole > lastWhole) {
+            conditions.add("(timestamp >= :start AND timestamp <= :end)");
+        } else {
+            LocalDateTime wholeFrom = toTime(firstWhole);
+            LocalDateTime wholeTo = toTime(lastWhole + 1);
+            if (start.isBefore(wholeFrom)) {
+                params.addValue("wholeFrom", Timestamp.valueOf(wholeFrom));
+                conditions.add("(timestamp >= :start AND timestamp < :wholeFrom)");
+            }
+            if (!end.isBefore(wholeTo)) {
+                params.addValue("wholeTo", Timestamp.valueOf(wholeTo));
+                conditions.add("(timestamp >= :wholeTo AND timestamp <= :end)");
+            }
+        }
+        if (conditions.isEmpty()) {
+            return;
+        }
+
+        String where = "WHERE (" + String.join(" OR ", conditions) + ")";
+        if (uris != null && !uris.isEmpty()) {
+            params.addValue("uris", uris);
+            where += " AND uri IN (:uris)";
+        }
+
+        if (unique) {
+            namedJdbcTemplate.query("SELECT DISTINCT app, uri, ip FROM hits " + where, params, rs -> {
+                HyperLogLog.add(sketches.computeIfAbsent(new AppUri(rs.getString("app"), rs.getString("uri")),
+                        key -> new byte[HyperLogLog.REGISTERS]), rs.getString("ip"));
+            });
+        } else {
+            namedJdbcTemplate.query("SELECT app, uri, COUNT(*) AS hits FROM hits " + where + " GROUP BY app, uri",
+                    params, rs -> {
+                        hits.computeIfAbsent(new AppUri(rs.getString("app"), rs.getString("uri")),
+                                key -> new long[1])[0] += rs.getLong("hits");
+                    });
+        }
+    }
+
+    // канонические ключи под фильтр uri; null - фильтра нет
+    private List<AppUri> candidates(List<String> uris) {
+        if (uris == null || uris.isEmpty()) {
+            return null;
+        }
+
+        Set<String> filter = new HashSet<>(uris);
+        List<AppUri> candidates = new ArrayList<>();
+        for (AppUri appUri : internedUris.keySet()) {
+            if (filter.contains(appUri.uri())) {
+                candidates.add(appUri);
+            }
+        }
+        return candidates;
+    }
+
+    private AppUri intern(AppUri appUri) {
+        InternedUri interned = internedUris.computeIfAbsent(appUri, InternedUri::new);
+        interned.buckets++;
+        return interned.appUri;
+    }
+
+    private void release(MinuteBucket bucket) {
+        if (bucket == null) {
+            return;
+        }
+        for (AppUri appUri : bucket.byUri.keySet()) {
+            InternedUri interned = internedUris.get(appUri);
+            if (--interned.buckets == 0) {
+                internedUris.remove(appUri);
+            }
+        }
+    }
+
+    // минуты, выпавшие из окна, освобождаются сразу, а не когда их слот понадобится снова
+    private void evictBefore(long oldest) {
+        for (int slot = 0; slot < ring.length; slot++) {
+            MinuteBucket bucket = ring[slot];
+            if (bucket != null && bucket.minute < oldest) {
+                release(bucket);
+                ring[slot] = null;
+            }
+        }
+    }
+
+    private int internedCount() {
+        lock.readLock().lock();
+        try {
+            return internedUris.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long windowStartMinute(long currentMinute) {
+        return currentMinute - windowMinutes + 1;
+    }
+
+    private static long currentMinute() {
+        return Math.floorDiv(toEpochMicros(LocalDateTime.now()), MICROS_PER_MINUTE);
+    }
+
+    private static long toEpochMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime toTime(long minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+    }
+
+    private static final class MinuteBucket {
+        private final long minute;
+        private final Map<AppUri, UriMinute> byUri = new HashMap<>();
+
+        private MinuteBucket(long minute) {
+            this.minute = minute;
+        }
+    }
+
+    // пока заполненных регистров мало, они хранятся парами (регистр << 8 | rho) в int[],
+    // после SPARSE_LIMIT - плотным массивом HyperLogLog.REGISTERS байт
+    private static final class UriMinute {
+        private static final int SPARSE_LIMIT = HyperLogLog.REGISTERS / 16;
+
+        private long hits;
+        private int[] sparse = new int[4];
+        private int sparseSize;
+        private byte[] dense;
+
+        private void add(String ip) {
+            hits++;
+
+            long hash = HyperLogLog.hash(ip);
+            int reg = HyperLogLog.register(hash);
+            byte rho = HyperLogLog.rho(hash);
+            if (dense != null) {
+                if (dense[reg] < rho) {
+                    dense[reg] = rho;
+                }
+                return;
+            }
+
+            for (int i = 0; i < sparseSize; i++) {
+                if (sparse[i] >>> 8 == reg) {
+                    if ((sparse[i] & 0xFF) < rho) {
+                        sparse[i] = reg << 8 | rho;
+                    }
+                    return;
+                }
+            }
+
+            if (sparseSize == SPARSE_LIMIT) {
+                byte[] registers = new byte[HyperLogLog.REGISTERS];
+                mergeInto(registers);
+                registers[reg] = rho;
+                dense = registers;
+                sparse = null;
+                return;
+            }
+            if (sparseSize == sparse.length) {
+                sparse = Arrays.copyOf(sparse, Math.min(sparseSize * 2, SPARSE_LIMIT));
+            }
+            sparse[sparseSize++] = reg << 8 | rho;
+        }
+
+        private void mergeInto(byte[] registers) {
+            if (dense != null) {
+                HyperLogLog.merge(registers, dense);
+                return;
+            }
+            for (int i = 0; i < sparseSize; i++) {
+                int reg = sparse[i] >>> 8;
+                byte rho = (byte) (sparse[i] & 0xFF);
+                if (registers[reg] < rho) {
+                    registers[reg] = rho;
+                }
+            }
+        }
+    }
+
+    private static final class InternedUri {
+        private final AppUri appUri;
+        private int buckets;
+
+        private InternedUri(AppUri appUri) {
+            this.appUri = appUri;
+        }
+    }
+
+    private record AppUri(String app, String uri) {
+    }
+}
@@ -0,0 +1,121 @@
+package ru.practicum.hit;
+
+import lombok.experimental.UtilityClass;
+
+import java.nio.charset.StandardCharsets;
+
+// HLL с точностью p=12: 4096 регистров, стандартная ошибка 1.04 / sqrt(4096) ~ 1.6%
+@UtilityClass
+public class HyperLogLog {
+    public static final int PRECISION = 12;
+    public static final int REGISTERS = 1 << PRECISION;
+
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    // в БД скетч лежит плотно (ровно REGISTERS байт) или разреженно: по 3 байта (номер регистра
+    // в двух байтах и rho) на каждый ненулевой регистр. REGISTERS не кратно 3, так что формат однозначно определяется длиной
+    private static final int SPARSE_ENTRY_BYTES = 3;
+
+    public static double relativeError() {
+        return 1.04 / Math.sqrt(REGISTERS);
+    }
+
+    // FNV-1a по байтам + финализатор murmur3, чтобы все 64 бита были равномерными
+    public static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    public static int register(long hash) {
+        return (int) (hash >>> (Long.SIZE - PRECISION));
+    }
+
+    public static byte rho(long hash) {
+        return (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+    }
+
+    public static void add(byte[] registers, String value) {
+        long hash = hash(value);
+        int index = register(hash);
+        byte rho = rho(hash);
+        if (registers[index] < rho) {
+            registers[index] = rho;
+        }
+    }
+
+    // поэлементный максимум с сохраненным скетчем в любом формате;
+    // пустой source (только что заведенная строка скетча) ничего не меняет
+    public static void merge(byte[] registers, byte[] source) {
+        if (source == null) {
+            return;
+        }
+        if (source.length == REGISTERS) {
+            for (int i = 0; i < REGISTERS; i++) {
+                if (registers[i] < source[i]) {
+                    registers[i] = source[i];
+                }
+            }
+            return;
+        }
+        if (source.length % SPARSE_ENTRY_BYTES != 0) {
+            return;
+        }
+        for (int i = 0; i < source.length; i += SPARSE_ENTRY_BYTES) {
+            int index = (source[i] & 0xFF) << 8 | source[i + 1] & 0xFF;
+            byte rho = source[i + 2];
+            if (registers[index] < rho) {
+                registers[index] = rho;
+            }
+        }
+    }
+
+    // разреженный формат, пока он короче плотного: минутный бакет с парой ip занимает несколько байт, а не 4 КБ
+    public static byte[] encode(byte[] registers) {
+        int filled = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                filled++;
+            }
+        }
+        if (filled * SPARSE_ENTRY_BYTES >= REGISTERS) {
+            return registers;
+        }
+
+        byte[] sparse = new byte[filled * SPARSE_ENTRY_BYTES];
+        int position = 0;
+        for (int i = 0; i < REGISTERS; i++) {
+            if (registers[i] != 0) {
+                sparse[position++] = (byte) (i >>> 8);
+                sparse[position++] = (byte) i;
+                sparse[position++] = registers[i];
+            }
+        }
+        return sparse;
+    }
+
+    public static long estimate(byte[] registers) {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+}
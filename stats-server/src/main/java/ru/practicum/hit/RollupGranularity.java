@@ -0,0 +1,32 @@
+package ru.practicum.hit;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+// порядок важен: от крупных бакетов к мелким
+public enum RollupGranularity {
+    DAY(ChronoUnit.DAYS, "day"),
+    HOUR(ChronoUnit.HOURS, "hour"),
+    MINUTE(ChronoUnit.MINUTES, "minute");
+
+    private final ChronoUnit unit;
+    private final String dateTruncField;
+
+    RollupGranularity(ChronoUnit unit, String dateTruncField) {
+        this.unit = unit;
+        this.dateTruncField = dateTruncField;
+    }
+
+    public LocalDateTime floor(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    public LocalDateTime ceil(LocalDateTime time) {
+        LocalDateTime floor = floor(time);
+        return floor.equals(time) ? time : floor.plus(1, unit);
+    }
+
+    public String getDateTruncField() {
+        return dateTruncField;
+    }
+}
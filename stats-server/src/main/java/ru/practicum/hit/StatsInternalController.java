@@ -1,12 +1,20 @@
 package ru.practicum.hit;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.coyote.BadRequestException;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -15,6 +23,7 @@ import java.util.List;
 @Slf4j
 public class StatsInternalController {
     private final StatsService statsService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/hit")
     @ResponseStatus(HttpStatus.CREATED)
@@ -22,23 +31,76 @@ public class StatsInternalController {
         statsService.addHit(request);
     }
 
+    @PostMapping(value = "/hits", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public HitsBulkResult addHits(InputStream body) throws IOException {
+        return statsService.addHits(body, false);
+    }
+
+    @PostMapping(value = "/hits", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public HitsBulkResult addHitsStream(InputStream body) throws IOException {
+        return statsService.addHits(body, true);
+    }
+
     @GetMapping("/stats")
     public List<ViewStatsDto> stats(
             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
             @RequestParam(required = false) List<String> uris,
-            @RequestParam(defaultValue = "false") boolean unique
+            @RequestParam(defaultValue = "false") boolean unique,
+            @RequestParam(defaultValue = "false") boolean approximate,
+            @RequestParam(required = false) Integer limit
     ) throws BadRequestException {
 
         log.info("URIs parameter: {}", uris);           // ← что здесь?
         log.info("URIs class: {}", uris != null ? uris.getClass() : "null");
         log.info("URIs size: {}", uris != null ? uris.size() : 0);
 
+        validateStatsParams(start, end, limit);
+        return statsService.getStats(start, end, uris, unique, approximate, limit);
+    }
+
+    // то же, что GET /stats, но параметры в теле: для сотен uri за один запрос
+    @PostMapping(value = "/stats", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<ViewStatsDto> statsByRequest(@Valid @RequestBody StatsRequest request) throws BadRequestException {
+        validateStatsParams(request.getStart(), request.getEnd(), request.getLimit());
+        return statsService.getStats(request.getStart(), request.getEnd(), request.getUris(),
+                request.isUnique(), request.isApproximate(), request.getLimit());
+    }
+
+    // NDJSON: строки статистики пишутся в ответ по мере чтения из БД
+    @GetMapping(value = "/stats/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody statsStream(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+            @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "false") boolean unique,
+            @RequestParam(defaultValue = "false") boolean approximate,
+            @RequestParam(required = false) Integer limit
+    ) throws BadRequestException {
+        validateStatsParams(start, end, limit);
+
+        return out -> {
+            ObjectWriter writer = objectMapper.writerFor(ViewStatsDto.class);
+            statsService.streamStats(start, end, uris, unique, approximate, limit, stats -> {
+                try {
+                    out.write(writer.writeValueAsBytes(stats));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+        };
+    }
+
+    private void validateStatsParams(LocalDateTime start, LocalDateTime end, Integer limit) throws BadRequestException {
         if (end != null && end.isBefore(start)) {
             throw new BadRequestException("rangeEnd is before rangeStart");
         }
-
-        return statsService.getStats(start, end, uris, unique);
+        if (limit != null && limit <= 0) {
+            throw new BadRequestException("limit must be positive");
+        }
     }
-
 }
@@ -5,11 +5,12 @@ import org.mapstruct.Mapper;
 @Mapper(componentModel = "spring")
 public interface StatsMapper {
 
-    static ViewStatsDto objToViewStats(Object[] obj) {
-        String app = obj[0].toString();
-        String uri = obj[1].toString();
-        Long hits = ((Number) obj[2]).longValue();
-
-        return new ViewStatsDto(app, uri, hits);
+    static Hit newHitToHit(NewHitRequest request) {
+        return Hit.builder()
+                .app(request.getApp())
+                .uri(request.getUri())
+                .ip(request.getIp())
+                .timestamp(request.getTimestamp())
+                .build();
     }
 }
@@ -3,56 +3,85 @@ package ru.practicum.hit;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class StatsService {
     private final HitRepository hitRepository;
+    private final HitIngestionQueue hitIngestionQueue;
+    private final BulkHitLoader bulkHitLoader;
+    private final HitRollupStore hitRollupStore;
+    private final HitSketchStore hitSketchStore;
+    private final HotWindowStats hotWindowStats;
+    private final HitPartitionManager hitPartitionManager;
+    private final TransactionTemplate transactionTemplate;
 
     public void addHit(NewHitRequest request) {
-        log.info("Adding a new hit to stats service");
-        Hit hit = Hit.builder()
-                .app(request.getApp())
-                .uri(request.getUri())
-                .ip(request.getIp())
-                .timestamp(request.getTimestamp())
-                .build();
-        log.info("Hit to save : {}", hit);
-        hitRepository.save(hit);
+        log.debug("Adding a new hit to stats service");
+        Hit hit = StatsMapper.newHitToHit(request);
+        log.debug("Hit to enqueue : {}", hit);
+        hitIngestionQueue.submit(hit);
+    }
+
+    public HitsBulkResult addHits(InputStream body, boolean ndjson) throws IOException {
+        log.info("Adding hits in bulk, ndjson: {}", ndjson);
+        return ndjson ? bulkHitLoader.loadNdjson(body) : bulkHitLoader.loadArray(body);
     }
 
     public List<ViewStatsDto> getStats(LocalDateTime start,
                                        LocalDateTime end,
                                        List<String> uris,
-                                       boolean unique) {
-        log.info("Getting stats for start: {}, end: {}, uris: {}, unique: {}", start, end, uris, unique);
+                                       boolean unique,
+                                       boolean approximate,
+                                       Integer limit) {
+        List<ViewStatsDto> stats = new ArrayList<>();
+        streamStats(start, end, uris, unique, approximate, limit, stats::add);
+        return stats;
+    }
 
-        List<Object[]> results;
+    // строки отдаются в sink по мере чтения, не собираясь в список
+    public void streamStats(LocalDateTime start,
+                            LocalDateTime end,
+                            List<String> uris,
+                            boolean unique,
+                            boolean approximate,
+                            Integer limit,
+                            Consumer<ViewStatsDto> sink) {
+        log.info("Getting stats for start: {}, end: {}, uris: {}, unique: {}, approximate: {}, limit: {}",
+                start, end, uris, unique, approximate, limit);
 
-        if (uris == null || uris.isEmpty()) {
-            if (unique) {
-                results = hitRepository.findUniqueStatsWithoutUris(start, end);
-            } else {
-                results = hitRepository.findAllStatsWithoutUris(start, end);
-            }
-        } else {
-            if (unique) {
-                results = hitRepository.findUniqueStatsWithUris(start, end, uris);
-            } else {
-                results = hitRepository.findAllStatsWithUris(start, end, uris);
-            }
+        // свежие диапазоны считаются в памяти: неуникальные точно, уникальные только по HLL,
+        // поэтому точные уникальные идут в БД и по свежим диапазонам
+        if ((!unique || approximate) && hotWindowStats.covers(start, end)) {
+            hotWindowStats.getStats(start, end, uris, unique, limit).forEach(sink);
+            return;
         }
-        log.info("results: {}", results);
 
-        return results.stream()
-                .map(StatsMapper::objToViewStats)
-                .collect(Collectors.toList());
-    }
+        if (!unique) {
+            hitRollupStore.streamStats(start, end, uris, limit, sink);
+            return;
+        }
 
+        // по удаленным секциям точного ответа нет, роллапы и скетчи за эти месяцы остались
+        if (approximate || hitPartitionManager.isRawDataExpired(start)) {
+            hitSketchStore.findUniqueStats(start, end, uris, limit).forEach(sink);
+            return;
+        }
 
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<ViewStatsDto> results = hitRepository.streamUniqueStats(start, end, uris, limit)) {
+                results.forEach(sink);
+            }
+        });
+    }
 }
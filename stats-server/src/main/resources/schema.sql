@@ -1,8 +1,48 @@
+CREATE SEQUENCE IF NOT EXISTS hits_seq;
+
+-- секции по месяцам, индексы и секцию по умолчанию создает HitPartitionManager
 CREATE TABLE IF NOT EXISTS hits
 (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    id BIGINT NOT NULL DEFAULT nextval('hits_seq'),
     app VARCHAR(255) NOT NULL,
     uri VARCHAR(512) NOT NULL,
     ip VARCHAR(45) NOT NULL,
-    timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL
-);
\ No newline at end of file
+    timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+
+    CONSTRAINT hits_pk PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+CREATE TABLE IF NOT EXISTS hit_rollups
+(
+    granularity  VARCHAR(10)  NOT NULL,
+    bucket_start TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app          VARCHAR(255) NOT NULL,
+    uri          VARCHAR(512) NOT NULL,
+    hits         BIGINT       NOT NULL,
+
+    PRIMARY KEY (granularity, bucket_start, app, uri)
+);
+
+CREATE TABLE IF NOT EXISTS hit_rollup_state
+(
+    id       SMALLINT PRIMARY KEY,
+    built_at TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+-- HLL-скетч ip по бакету целиком в одной строке: HyperLogLog.REGISTERS байт регистров
+-- или, пока заполненных регистров мало, разреженный список (см. HyperLogLog.encode)
+CREATE TABLE IF NOT EXISTS hit_bucket_sketches
+(
+    granularity  VARCHAR(10)  NOT NULL,
+    bucket_start TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app          VARCHAR(255) NOT NULL,
+    uri          VARCHAR(512) NOT NULL,
+    registers    BYTEA        NOT NULL,
+
+    PRIMARY KEY (granularity, bucket_start, app, uri)
+);
+
+-- прежние скетчи по строке на регистр не переносим: HitSketchStore строит новые из hits
+DROP TABLE IF EXISTS hit_sketches;
+-- id = 2 - отметка плотных скетчей по 4 КБ: без нее HitSketchStore один раз пересоберет их в разреженном формате
+DELETE FROM hit_rollup_state WHERE id = 2;